@@ -0,0 +1,65 @@
+package study.datajpa.benchmark;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import study.datajpa.DataJpaApplication;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+/*
+벤치마크용 스프링 컨텍스트
+tcp 서버 대신 임베디드(in-memory) H2를 사용하고, sql 로그는 끈다.
+하이버네이트 통계로 연산당 sql 실행 횟수를 센다.
+ */
+public class BenchmarkContext implements AutoCloseable {
+
+    private final ConfigurableApplicationContext context;
+    private final Statistics statistics;
+
+    private BenchmarkContext(ConfigurableApplicationContext context) {
+        this.context = context;
+        this.statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+        this.statistics.setStatisticsEnabled(true);
+    }
+
+    public static BenchmarkContext start(String... properties) {
+        List<String> defaults = new ArrayList<>(Arrays.asList(
+                "spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                "spring.jpa.properties.hibernate.format_sql=false",
+                "logging.level.org.hibernate.sql=warn",
+                "decorator.datasource.p6spy.enable-logging=false"));
+        defaults.addAll(Arrays.asList(properties));
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(DataJpaApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(defaults.toArray(new String[0]))
+                .run();
+        return new BenchmarkContext(context);
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    /*
+    work 실행 중 준비(prepare)된 jdbc statement 수를 counter에 더한다. (단일 스레드 기준)
+     */
+    public <T> T counted(SqlCounter counter, Supplier<T> work) {
+        long before = statistics.getPrepareStatementCount();
+        T result = work.get();
+        counter.statements += statistics.getPrepareStatementCount() - before;
+        counter.operations++;
+        return result;
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+}
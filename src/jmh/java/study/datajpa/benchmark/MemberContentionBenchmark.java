@@ -0,0 +1,100 @@
+package study.datajpa.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.service.MemberUpdater;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/*
+인기 username 동시 수정 경합 벤치마크
+연산 하나 = writers개의 스레드가 hotKeys개의 회원 중 하나를 동시에 +1 수정
+- updates : 초당 커밋된 수정 요청 수 (UpdateCounter, ops/s)
+- mode : PESSIMISTIC(select for update) / OPTIMISTIC(@Version + 재시도)
+- coalesce : 같은 username 요청 병합 여부
+./gradlew jmh -PjmhInclude=MemberContentionBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MemberContentionBenchmark {
+
+    @Param({"8", "32", "128", "256"})
+    public int writers;
+
+    @Param({"PESSIMISTIC", "OPTIMISTIC"})
+    public String mode;
+
+    @Param({"false", "true"})
+    public boolean coalesce;
+
+    @Param({"4"})
+    public int hotKeys;
+
+    private BenchmarkContext context;
+    private MemberUpdater memberUpdater;
+    private ExecutorService executor;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class UpdateCounter {
+        public long updates;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            updates = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start(
+                "datajpa.member-update.mode=" + mode,
+                "datajpa.member-update.coalesce=" + coalesce,
+                "datajpa.member-update.max-attempts=50",
+                "spring.datasource.url=jdbc:h2:mem:contention;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000");
+        memberUpdater = context.getBean(MemberUpdater.class);
+        MemberRepository memberRepository = context.getBean(MemberRepository.class);
+        for (int i = 0; i < hotKeys; i++) {
+            memberRepository.save(new Member("hot" + i, 0));
+        }
+        executor = Executors.newFixedThreadPool(writers);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+        context.close();
+    }
+
+    @Benchmark
+    public int contendedUpdate(UpdateCounter counter) throws Exception {
+        List<Future<Integer>> futures = new ArrayList<>(writers);
+        for (int i = 0; i < writers; i++) {
+            String username = "hot" + (i % hotKeys);
+            futures.add(executor.submit(() -> memberUpdater.update(username, member -> member.changeAge(member.getAge() + 1))));
+        }
+        int updated = 0;
+        for (Future<Integer> future : futures) {
+            updated += future.get();
+        }
+        counter.updates += writers;
+        return updated;
+    }
+}
@@ -0,0 +1,151 @@
+package study.datajpa.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.dto.MemberDto;
+import study.datajpa.entity.Item;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.ItemRepository;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.UsernameOnly;
+import study.datajpa.repository.UsernameOnlyDto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/*
+리포지토리 주요 조회/저장 경로 벤치마크
+- ops/s : 초당 연산 수
+- gc 프로파일러 : ·gc.alloc.rate.norm (연산당 할당 바이트)
+- SqlCounter : statementsPerOp (연산당 sql 실행 횟수)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MemberRepositoryBenchmark {
+
+    private static final PageRequest PAGE = PageRequest.of(10, 20, Sort.by("username"));
+
+    @Param({"1000"})
+    public int memberCount;
+
+    private BenchmarkContext context;
+    private MemberRepository memberRepository;
+    private ItemRepository itemRepository;
+    private TransactionTemplate readOnlyTx;
+    private TransactionTemplate readWriteTx;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        memberRepository = context.getBean(MemberRepository.class);
+        itemRepository = context.getBean(ItemRepository.class);
+        PlatformTransactionManager transactionManager = context.getBean(PlatformTransactionManager.class);
+        readOnlyTx = new TransactionTemplate(transactionManager);
+        readOnlyTx.setReadOnly(true);
+        readWriteTx = new TransactionTemplate(transactionManager);
+
+        List<Team> teams = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            teams.add(new Team("team" + i));
+        }
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < memberCount; i++) {
+            members.add(new Member("member" + i, i % 50, teams.get(i % teams.size())));
+        }
+        memberRepository.saveAllBatched(members);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<Member> findAllPageable(SqlCounter counter) {
+        return context.counted(counter, () -> memberRepository.findAll(PAGE));
+    }
+
+    @Benchmark
+    public Page<Member> findByAge(SqlCounter counter) {
+        return context.counted(counter, () -> memberRepository.findByAge(10, PageRequest.of(0, 20)));
+    }
+
+    @Benchmark
+    public List<Member> findMemberFetchJoin(SqlCounter counter) {
+        return context.counted(counter, () -> memberRepository.findMemberFetchJoin());
+    }
+
+    /*
+    readOnly vs read-write 비교 : 같은 조회를 바깥 트랜잭션의 readOnly 여부만 바꿔서 실행한다.
+    readOnly면 flush mode MANUAL + 엔티티를 읽기 전용으로 로딩해서 스냅샷을 만들지 않고 커밋 시 dirty checking도 하지 않는다.
+    ·gc.alloc.rate.norm 차이가 스냅샷 비용, ops/s 차이가 flush(dirty checking) 비용이다.
+     */
+    @Benchmark
+    public List<Member> findMemberFetchJoinReadOnly(SqlCounter counter) {
+        return context.counted(counter, () -> readOnlyTx.execute(status -> memberRepository.findMemberFetchJoin()));
+    }
+
+    @Benchmark
+    public List<Member> findMemberFetchJoinReadWrite(SqlCounter counter) {
+        return context.counted(counter, () -> readWriteTx.execute(status -> memberRepository.findMemberFetchJoin()));
+    }
+
+    @Benchmark
+    public List<Member> findAllEntityGraph(SqlCounter counter) {
+        return context.counted(counter, () -> memberRepository.findAll());
+    }
+
+    @Benchmark
+    public List<MemberDto> findMemberDto(SqlCounter counter) {
+        return context.counted(counter, () -> memberRepository.findMemberDto());
+    }
+
+    @Benchmark
+    public List<UsernameOnly> findProjectionsByUsername(SqlCounter counter) {
+        return context.counted(counter, () -> memberRepository.findProjectionsByUsername("member1"));
+    }
+
+    @Benchmark
+    public List<UsernameOnlyDto> findProjectionsDtoByUsername(SqlCounter counter) {
+        return context.counted(counter, () -> memberRepository.findProjectionsDtoByUsername("member1"));
+    }
+
+    @Benchmark
+    public List<UsernameOnlyDto> findDynamicProjectionsDtoByUsername(SqlCounter counter) {
+        return context.counted(counter, () -> memberRepository.findDynamicProjectionsDtoByUsername("member1", UsernameOnlyDto.class));
+    }
+
+    /*
+    연산당 100건 저장 : auditing 리스너 비용이 포함된다.
+     */
+    @Benchmark
+    public int saveMembers(SqlCounter counter) {
+        List<Member> members = new ArrayList<>(100);
+        for (int i = 0; i < 100; i++) {
+            members.add(new Member("bulk" + i, i % 50));
+        }
+        return context.counted(counter, () -> memberRepository.saveAllBatched(members));
+    }
+
+    @Benchmark
+    public Item itemSave(SqlCounter counter) {
+        return context.counted(counter, () -> itemRepository.save(new Item(UUID.randomUUID().toString())));
+    }
+}
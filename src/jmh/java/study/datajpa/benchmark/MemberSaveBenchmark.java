@@ -0,0 +1,75 @@
+package study.datajpa.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+대량 저장 비교 : saveAll(save() 반복) vs saveAllBatched(flush-size 단위 flush + detach)
+연산 하나 = rows건 저장 (SingleShotTime : 한 번 실행에 걸린 시간)
+- saveAll : 트랜잭션 하나에서 save()를 반복하므로 rows건 모두가 커밋 시점까지 영속성 컨텍스트(스냅샷 포함)에 남는다.
+- saveAllBatched : datajpa.batch.flush-size건마다 flush 후 detach하므로 영속성 컨텍스트 크기가 일정하다.
+gc 프로파일러의 ·gc.alloc.rate.norm, statementsPerOp(jdbc batch로 묶인 insert는 batch당 1번)를 함께 비교한다.
+./gradlew jmh -PjmhInclude=MemberSaveBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(jvmArgsAppend = "-Xmx4g") //saveAll 1000000건은 영속성 컨텍스트에 모두 남는다.
+public class MemberSaveBenchmark {
+
+    @Param({"10000", "1000000"})
+    public int rows;
+
+    private BenchmarkContext context;
+    private MemberRepository memberRepository;
+    private List<Member> members;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        memberRepository = context.getBean(MemberRepository.class);
+    }
+
+    @Setup(Level.Invocation)
+    public void prepareMembers() {
+        members = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            members.add(new Member("save" + i, i % 50));
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteMembers() {
+        memberRepository.deleteAllInBatch();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int saveAll(SqlCounter counter) {
+        return context.counted(counter, () -> memberRepository.saveAll(members).size());
+    }
+
+    @Benchmark
+    public int saveAllBatched(SqlCounter counter) {
+        return context.counted(counter, () -> memberRepository.saveAllBatched(members));
+    }
+}
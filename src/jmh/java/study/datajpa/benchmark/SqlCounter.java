@@ -0,0 +1,28 @@
+package study.datajpa.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/*
+연산당 sql 실행 횟수 보조 지표 (결과에 statementsPerOp로 함께 출력된다.)
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.EVENTS)
+public class SqlCounter {
+
+    public long statements;
+    public long operations;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        statements = 0;
+        operations = 0;
+    }
+
+    public double statementsPerOp() {
+        return operations == 0 ? 0 : (double) statements / operations;
+    }
+}
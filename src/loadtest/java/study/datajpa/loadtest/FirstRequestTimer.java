@@ -0,0 +1,63 @@
+package study.datajpa.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+time-to-first-request : 애플리케이션 프로세스를 띄운 순간부터 첫 요청이 200으로 응답할 때까지의 시간
+args : 애플리케이션 실행 명령 (java ... study.datajpa.DataJpaApplication ...)
+-Dfirstrequest.url (기본 http://localhost:8080/members), -Dfirstrequest.runs (기본 3, 중앙값 출력)
+ */
+public class FirstRequestTimer {
+
+    public static void main(String[] args) throws Exception {
+        URI uri = URI.create(System.getProperty("firstrequest.url", "http://localhost:8080/members"));
+        int runs = Integer.getInteger("firstrequest.runs", 3);
+        List<String> command = Arrays.asList(args);
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(200)).build();
+        HttpRequest request = HttpRequest.newBuilder(uri).GET().build();
+        List<Long> results = new ArrayList<>();
+        for (int run = 1; run <= runs; run++) {
+            long millis = measure(client, request, command);
+            results.add(millis);
+            System.out.printf("run %d : first request after %d ms%n", run, millis);
+        }
+        results.sort(null);
+        System.out.printf("time-to-first-request median : %d ms%n", results.get(results.size() / 2));
+    }
+
+    private static long measure(HttpClient client, HttpRequest request, List<String> command) throws Exception {
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        try {
+            while (true) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("application exited with " + process.exitValue());
+                }
+                try {
+                    HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                    if (response.statusCode() == 200) {
+                        return (System.nanoTime() - start) / 1_000_000;
+                    }
+                } catch (IOException e) {
+                    //아직 포트를 열지 않음
+                }
+                Thread.sleep(10);
+            }
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package study.datajpa.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*
+단계별 동시 요청 부하 테스트
+동시 요청 수(concurrency)마다 지정한 시간 동안 요청을 반복하고 처리량(req/s)과 지연시간(p50, p99, max)을 출력한다.
+동시 요청 수를 늘려도 처리량이 더 이상 늘지 않고 지연시간만 늘어나는 지점이 서버의 동시 처리 한계다.
+
+-Dloadtest.url(공백으로 구분하면 url마다 차례로 실행), -Dloadtest.concurrency(쉼표 구분), -Dloadtest.seconds, -Dloadtest.warmupSeconds
+-Dloadtest.metrics : 실행 중 1초마다 조회하여 최대값을 출력할 actuator 지표 (쉼표 구분, ex: hikaricp.connections.pending)
+ */
+public class LoadTest {
+
+    private static final Pattern GAUGE_VALUE = Pattern.compile("\"statistic\":\"(?:VALUE|MAX)\",\"value\":([0-9.eE+-]+)");
+
+    private static List<String> metrics = new ArrayList<>();
+
+    public static void main(String[] args) throws Exception {
+        List<URI> uris = new ArrayList<>();
+        for (String url : System.getProperty("loadtest.url", "http://localhost:8080/members?size=20").trim().split("\\s+")) {
+            uris.add(URI.create(url));
+        }
+        int[] levels = Arrays.stream(System.getProperty("loadtest.concurrency", "8,32,128,512").split(","))
+                .map(String::trim)
+                .mapToInt(Integer::parseInt)
+                .toArray();
+        Duration duration = Duration.ofSeconds(Long.getLong("loadtest.seconds", 20));
+        Duration warmup = Duration.ofSeconds(Long.getLong("loadtest.warmupSeconds", 5));
+        String metricNames = System.getProperty("loadtest.metrics", "");
+        if (!metricNames.isBlank()) {
+            Arrays.stream(metricNames.split(",")).map(String::trim).forEach(metrics::add);
+        }
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newCachedThreadPool())
+                .build();
+
+        for (URI uri : uris) {
+            System.out.println("url = " + uri);
+            run(client, uri, levels[0], warmup);
+            System.out.printf("%12s %12s %10s %10s %10s %8s%n", "concurrency", "req/s", "p50(ms)", "p99(ms)", "max(ms)", "errors");
+            for (int concurrency : levels) {
+                Result result = run(client, uri, concurrency, duration);
+                System.out.printf("%12d %12.1f %10.1f %10.1f %10.1f %8d%n",
+                        concurrency, result.throughput(), result.percentileMillis(0.50),
+                        result.percentileMillis(0.99), result.percentileMillis(1.0), result.errors);
+                for (int i = 0; i < metrics.size(); i++) {
+                    System.out.printf("%12s max %s = %.3f%n", "", metrics.get(i), result.metricMax[i]);
+                }
+            }
+        }
+        System.exit(0);
+    }
+
+    private static Result run(HttpClient client, URI uri, int concurrency, Duration duration) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(30)).GET().build();
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        long startNanos = System.nanoTime();
+        long deadline = startNanos + duration.toNanos();
+        List<Future<Worker>> futures = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            futures.add(workers.submit(() -> new Worker().run(client, request, deadline)));
+        }
+        Result result = new Result();
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        sampler.scheduleAtFixedRate(() -> sampleMetrics(client, uri, result), 1, 1, TimeUnit.SECONDS);
+        for (Future<Worker> future : futures) {
+            Worker worker = future.get();
+            result.add(worker);
+        }
+        result.elapsedNanos = System.nanoTime() - startNanos;
+        sampler.shutdownNow();
+        workers.shutdown();
+        return result;
+    }
+
+    /*
+    /actuator/metrics/{name} 응답의 VALUE(게이지) 또는 MAX(타이머) 값을 읽어 최대값을 기록한다.
+     */
+    private static void sampleMetrics(HttpClient client, URI uri, Result result) {
+        for (int i = 0; i < metrics.size(); i++) {
+            try {
+                HttpRequest request = HttpRequest.newBuilder(uri.resolve("/actuator/metrics/" + metrics.get(i))).GET().build();
+                String body = client.send(request, HttpResponse.BodyHandlers.ofString()).body();
+                Matcher matcher = GAUGE_VALUE.matcher(body);
+                if (matcher.find()) {
+                    result.metricMax[i] = Math.max(result.metricMax[i], Double.parseDouble(matcher.group(1)));
+                }
+            } catch (Exception ignored) {
+                //지표 조회 실패는 부하 테스트 결과에 영향을 주지 않는다.
+            }
+        }
+    }
+
+    private static class Worker {
+        private long[] latencies = new long[1024];
+        private int count;
+        private long errors;
+
+        Worker run(HttpClient client, HttpRequest request, long deadline) {
+            while (System.nanoTime() < deadline) {
+                long start = System.nanoTime();
+                try {
+                    HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                    if (response.statusCode() >= 400) {
+                        errors++;
+                        continue;
+                    }
+                } catch (Exception e) {
+                    errors++;
+                    continue;
+                }
+                if (count == latencies.length) {
+                    latencies = Arrays.copyOf(latencies, count * 2);
+                }
+                latencies[count++] = System.nanoTime() - start;
+            }
+            return this;
+        }
+    }
+
+    private static class Result {
+        private final double[] metricMax = new double[metrics.size()];
+        private long[] latencies = new long[0];
+        private long errors;
+        private long elapsedNanos;
+
+        void add(Worker worker) {
+            int offset = latencies.length;
+            latencies = Arrays.copyOf(latencies, offset + worker.count);
+            System.arraycopy(worker.latencies, 0, latencies, offset, worker.count);
+            errors += worker.errors;
+        }
+
+        double throughput() {
+            return latencies.length / (elapsedNanos / 1_000_000_000.0);
+        }
+
+        double percentileMillis(double percentile) {
+            if (latencies.length == 0) {
+                return 0;
+            }
+            long[] sorted = latencies.clone();
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile * sorted.length) - 1;
+            return sorted[Math.max(0, index)] / 1_000_000.0;
+        }
+    }
+}
@@ -2,28 +2,16 @@ package study.datajpa;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.context.annotation.Bean;
-import org.springframework.data.domain.AuditorAware;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
 
-import java.util.Optional;
-import java.util.UUID;
-
-@EnableJpaAuditing
+@EnableJpaAuditing //AuditorAware : study.datajpa.audit.AuditContext
 @SpringBootApplication
 public class DataJpaApplication {
 
 	public static void main(String[] args) {
-		SpringApplication.run(DataJpaApplication.class, args);
-	}
-
-	@Bean
-	public AuditorAware<String> auditorProvider() {
-		return new AuditorAware<String>() {
-			@Override
-			public Optional<String> getCurrentAuditor() {
-				return Optional.of(UUID.randomUUID().toString());
-			}
-		};
+		SpringApplication application = new SpringApplication(DataJpaApplication.class);
+		application.setApplicationStartup(new BufferingApplicationStartup(4096)); //시작 단계별 소요 시간 기록 (StartupReport, /actuator/startup)
+		application.run(args);
 	}
 }
@@ -0,0 +1,88 @@
+package study.datajpa.audit;
+
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+auditing 값(등록자/수정자, 등록/수정 시간) 제공
+- auditor : 트랜잭션당 한번만 만들어서 재사용 (엔티티마다 UUID.randomUUID()로 SecureRandom을 호출하지 않는다)
+  실제 서비스라면 SecurityContext 등에서 꺼낸 사용자 id를 트랜잭션 시작 시점에 한번 읽어두면 된다.
+- now : flush 단위로 한번만 LocalDateTime.now() (flush가 시작되면 AuditFlushInterceptor가 초기화)
+트랜잭션 밖에서는 호출할 때마다 새로 만든다.
+@EnableJpaAuditing의 AuditorAware로도 등록된다. (Item의 @CreatedDate 처리)
+ */
+@Component
+public class AuditContext implements AuditorAware<String> {
+
+    @Override
+    public Optional<String> getCurrentAuditor() {
+        return Optional.of(auditor());
+    }
+
+    public String auditor() {
+        State state = state();
+        return state == null ? newAuditor() : state.auditor;
+    }
+
+    public LocalDateTime now() {
+        State state = state();
+        if (state == null) {
+            return LocalDateTime.now();
+        }
+        if (state.now == null) {
+            state.now = LocalDateTime.now();
+        }
+        return state.now;
+    }
+
+    public void resetTimestamp() {
+        State state = (State) TransactionSynchronizationManager.getResource(this);
+        if (state != null) {
+            state.now = null;
+        }
+    }
+
+    private State state() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        State state = (State) TransactionSynchronizationManager.getResource(this);
+        if (state == null) {
+            state = new State(newAuditor());
+            TransactionSynchronizationManager.bindResource(this, state);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(AuditContext.this);
+                }
+            });
+        }
+        return state;
+    }
+
+    /*
+    UUID.randomUUID()와 같은 형식(version 4)이지만 스레드 경합이 없는 ThreadLocalRandom 사용
+     */
+    private static String newAuditor() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long mostSigBits = (random.nextLong() & ~0xF000L) | 0x4000L;
+        long leastSigBits = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(mostSigBits, leastSigBits).toString();
+    }
+
+    private static class State {
+        private final String auditor;
+        private LocalDateTime now;
+
+        State(String auditor) {
+            this.auditor = auditor;
+        }
+    }
+}
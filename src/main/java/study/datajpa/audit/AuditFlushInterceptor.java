@@ -0,0 +1,22 @@
+package study.datajpa.audit;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.EmptyInterceptor;
+
+import java.util.Iterator;
+
+/*
+flush가 시작될 때 auditing 시간을 초기화한다.
+같은 flush에서 수정되는 엔티티(@PreUpdate)는 모두 같은 시간을 갖고,
+다음 flush 전까지 persist 되는 엔티티(@PrePersist)도 하나의 시간을 공유한다.
+ */
+@RequiredArgsConstructor
+public class AuditFlushInterceptor extends EmptyInterceptor {
+
+    private final AuditContext auditContext;
+
+    @Override
+    public void preFlush(Iterator entities) {
+        auditContext.resetTimestamp();
+    }
+}
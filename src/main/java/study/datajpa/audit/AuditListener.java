@@ -0,0 +1,46 @@
+package study.datajpa.audit;
+
+import lombok.RequiredArgsConstructor;
+import study.datajpa.entity.BaseEntity;
+import study.datajpa.entity.BaseTimeEntity;
+
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import java.time.LocalDateTime;
+
+/*
+BaseTimeEntity, BaseEntity auditing 리스너
+AuditingEntityListener는 엔티티마다 @CreatedDate 등의 애노테이션 메타데이터와 리플렉션으로 값을 채우지만,
+auditing 대상 필드가 공통 부모 클래스에 고정되어 있으므로 setter를 직접 호출한다.
+ */
+@RequiredArgsConstructor
+public class AuditListener {
+
+    private final AuditContext auditContext;
+
+    @PrePersist
+    public void prePersist(Object entity) {
+        LocalDateTime now = auditContext.now();
+        if (entity instanceof BaseTimeEntity) {
+            BaseTimeEntity timeEntity = (BaseTimeEntity) entity;
+            timeEntity.setCreatedDate(now);
+            timeEntity.setLastModifiedDate(now);
+        }
+        if (entity instanceof BaseEntity) {
+            String auditor = auditContext.auditor();
+            BaseEntity baseEntity = (BaseEntity) entity;
+            baseEntity.setCreatedBy(auditor);
+            baseEntity.setLastModifiedBy(auditor);
+        }
+    }
+
+    @PreUpdate
+    public void preUpdate(Object entity) {
+        if (entity instanceof BaseTimeEntity) {
+            ((BaseTimeEntity) entity).setLastModifiedDate(auditContext.now());
+        }
+        if (entity instanceof BaseEntity) {
+            ((BaseEntity) entity).setLastModifiedBy(auditContext.auditor());
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package study.datajpa.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import study.datajpa.audit.AuditContext;
+import study.datajpa.audit.AuditFlushInterceptor;
+
+@Configuration(proxyBeanMethods = false)
+public class AuditConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer auditFlushInterceptorCustomizer(AuditContext auditContext) {
+        return properties -> properties.put(AvailableSettings.INTERCEPTOR, new AuditFlushInterceptor(auditContext));
+    }
+}
@@ -0,0 +1,37 @@
+package study.datajpa.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/*
+커넥션 풀 크기 자동 설정 (datajpa.datasource.pool-sizing.auto=true)
+풀 크기 = cpu 코어 수 * 2 + effective-spindle-count (HikariCP 권장 공식)
+커넥션을 많이 만든다고 db 처리량이 늘지 않으므로, 작은 고정 크기 풀을 두고 나머지 요청은 connection-timeout 동안 대기시킨다.
+대기 현황은 hikaricp.connections.pending, hikaricp.connections.acquire 지표로 확인한다.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "datajpa.datasource.pool-sizing.auto", havingValue = "true")
+public class DataSourcePoolConfig {
+
+    @Bean
+    public static BeanPostProcessor hikariPoolSizingPostProcessor(Environment environment) {
+        int spindleCount = environment.getProperty("datajpa.datasource.pool-sizing.effective-spindle-count", Integer.class, 1);
+        int poolSize = Runtime.getRuntime().availableProcessors() * 2 + spindleCount;
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                //설정 바인딩 이후, 풀이 시작(첫 getConnection)되기 전에 크기를 정한다.
+                if (bean instanceof HikariDataSource) {
+                    HikariDataSource dataSource = (HikariDataSource) bean;
+                    dataSource.setMaximumPoolSize(poolSize);
+                    dataSource.setMinimumIdle(poolSize);
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,31 @@
+package study.datajpa.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.r2dbc.ConnectionFactoryBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import study.datajpa.reactive.ReactiveMemberRepository;
+
+/*
+R2DBC 읽기 전용 조회 (datajpa.reactive.enabled=true)
+의존성은 spring-r2dbc(DatabaseClient) + r2dbc-pool + r2dbc-h2만 사용한다. (spring data r2dbc 리포지토리는 사용하지 않음)
+ConnectionFactory를 빈으로 등록하면 DataSourceAutoConfiguration이 물러나서 JPA가 동작하지 않고,
+R2dbcTransactionManager가 등록되면 @Transactional이 트랜잭션 매니저를 고르지 못하므로
+R2dbcAutoConfiguration, R2dbcTransactionManagerAutoConfiguration은 application.yml에서 제외하고
+ConnectionFactory는 ReactiveMemberRepository 안에서만 사용한다.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "datajpa.reactive.enabled", havingValue = "true")
+public class ReactiveConfig {
+
+    @Bean
+    public ReactiveMemberRepository reactiveMemberRepository(DataSourceProperties dataSourceProperties,
+                                                             @Value("${datajpa.reactive.url}") String url) {
+        return new ReactiveMemberRepository(ConnectionFactoryBuilder.withUrl(url)
+                .username(dataSourceProperties.determineUsername())
+                .password(dataSourceProperties.determinePassword())
+                .build());
+    }
+}
@@ -0,0 +1,75 @@
+package study.datajpa.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import study.datajpa.datasource.ReadWriteRoutingDataSource;
+import study.datajpa.datasource.ReadYourWritesFilter;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/*
+읽기 전용 replica 라우팅 (datajpa.datasource.replica.url 설정 시 활성화)
+primary : spring.datasource.*, spring.datasource.hikari.*
+replica : datajpa.datasource.replica.url/username/password, datajpa.datasource.replica.hikari.*
+스키마 생성(ddl-auto)은 트랜잭션 밖에서 실행되므로 primary에만 적용된다. replica 스키마/데이터는 복제로 맞춘다.
+운영 flyway 마이그레이션도 @FlywayDataSource로 primary에만 실행한다.
+
+open-in-view로 세션이 요청 전체에 걸쳐 있으면 하이버네이트 기본값(DELAYED_ACQUISITION_AND_HOLD)은 처음 얻은 커넥션을 요청이 끝날 때까지 잡고 있다.
+-> 읽기 전용 트랜잭션 다음의 쓰기 트랜잭션이 replica 커넥션에서 실행되므로 트랜잭션이 끝날 때마다 커넥션을 반환하게 한다.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "datajpa.datasource.replica.url")
+public class ReadWriteRoutingConfig {
+
+    @Bean
+    @FlywayDataSource
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @ConfigurationProperties("datajpa.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(DataSourceProperties properties, Environment environment) {
+        return DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(properties.determineDriverClassName())
+                .url(environment.getRequiredProperty("datajpa.datasource.replica.url"))
+                .username(environment.getProperty("datajpa.datasource.replica.username", properties.determineUsername()))
+                .password(environment.getProperty("datajpa.datasource.replica.password", properties.determinePassword()))
+                .build();
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, HikariDataSource replicaDataSource,
+                                 @Value("${datajpa.datasource.replica.read-your-writes-window:5s}") Duration readYourWritesWindow) {
+        return new LazyConnectionDataSourceProxy(
+                new ReadWriteRoutingDataSource(primaryDataSource, replicaDataSource, readYourWritesWindow));
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer releaseConnectionAfterTransactionCustomizer() {
+        return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+
+    @Bean
+    public ReadYourWritesFilter readYourWritesFilter() {
+        return new ReadYourWritesFilter();
+    }
+}
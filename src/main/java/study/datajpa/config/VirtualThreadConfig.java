@@ -0,0 +1,49 @@
+package study.datajpa.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/*
+가상 스레드 실행 모드 (datajpa.virtual-threads.enabled=true, JDK 21 이상에서 실행)
+- 톰캣 요청 처리 스레드 : 고정 크기 스레드 풀 대신 요청마다 가상 스레드
+- applicationTaskExecutor : @Async, mvc 비동기 요청 처리도 가상 스레드
+jdbc i/o를 기다리는 동안 캐리어 스레드를 반납하므로 동시 요청 수가 톰캣 스레드 수(기본 200)에 묶이지 않는다.
+대신 동시에 db를 사용하는 요청 수는 커넥션 풀 크기로 제한된다.
+
+주의 : synchronized 블록 안에서 jdbc i/o를 하면 가상 스레드가 캐리어 스레드에 고정(pinning)된다.
+애플리케이션 코드에는 synchronized를 쓰지 않고 (CountCache 등은 ConcurrentHashMap 사용),
+드라이버 내부의 pinning은 -Djdk.tracePinnedThreads로 확인한다. (bootRun -PvirtualThreads)
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "datajpa.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(newVirtualThreadPerTaskExecutor());
+    }
+
+    @Bean(name = TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    public AsyncTaskExecutor applicationTaskExecutor() {
+        return new TaskExecutorAdapter(newVirtualThreadPerTaskExecutor());
+    }
+
+    /*
+    자바 11로 컴파일해도 동작하도록 리플렉션으로 호출한다.
+     */
+    static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("datajpa.virtual-threads.enabled requires Java 21 or later", e);
+        }
+    }
+}
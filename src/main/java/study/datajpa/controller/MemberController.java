@@ -1,20 +1,35 @@
 package study.datajpa.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.data.web.SpringDataWebProperties;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
 import study.datajpa.dto.MemberDto;
 import study.datajpa.entity.Member;
+import study.datajpa.paging.KeysetCursor;
+import study.datajpa.paging.KeysetPage;
 import study.datajpa.paging.PageCustom;
 import study.datajpa.paging.PageableCustom;
 import study.datajpa.repository.MemberRepository;
 
 import javax.annotation.PostConstruct;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
 import java.util.Optional;
 
 @RestController
@@ -22,6 +37,13 @@ import java.util.Optional;
 public class MemberController {
 
     private final MemberRepository memberRepository;
+    private final SpringDataWebProperties springDataWebProperties;
+    private final ObjectMapper objectMapper;
+
+    @Value("${datajpa.slice.max-response-size:256KB}")
+    private DataSize sliceMaxResponseSize;
+    @Value("${datajpa.slice.estimated-row-size:256B}")
+    private DataSize sliceEstimatedRowSize;
 
     @GetMapping("/members/{id}")
     public String findMember(@PathVariable("id") Long id) {
@@ -45,19 +67,133 @@ public class MemberController {
      */
     @GetMapping("/members")
     private Page<MemberDto> list(@PageableDefault(size = 5) Pageable pageable) {
-        Page<Member> page = memberRepository.findAll(pageable);
         //엔티티를 api를 통해 외부에 노출하는 것은 프로그램 설계를 외부에 노출하는 것이다. dto에 담아서 return할 것.
-        Page<MemberDto> map = page.map(member -> new MemberDto(member));
-        return map;
+        //엔티티를 조회 후 map으로 변환하지 않고 dto로 바로 조회한다. count 쿼리 결과는 CountCache에서 재사용
+        return memberRepository.findMemberDtoCountCached(pageable, true);
     }
     /*
     Pageable과 Page 클래스를 커스텀하여 PageNumber가 1부터 시작하도록 설정
+    exactTotal=false 로 요청하면 캐시에 남아있는 근사 total을 허용한다. (응답의 exactTotal로 구분)
      */
     @GetMapping("/members2")
-    private PageCustom<MemberDto> customList(@PageableDefault(size = 5) Pageable pageable) {
-        Page<MemberDto> map = memberRepository.findAll(pageable).map(member -> new MemberDto(member));
+    private PageCustom<MemberDto> customList(@PageableDefault(size = 5) Pageable pageable,
+                                             @RequestParam(value = "exactTotal", defaultValue = "true") boolean exactTotal) {
+        Page<MemberDto> map = memberRepository.findMemberDtoCountCached(pageable, exactTotal);
         return new PageCustom<MemberDto>(map);
     }
+    /*
+    무한 스크롤용 Slice 페이징 : count 쿼리 없이 size + 1 건을 조회해서 다음 페이지 존재 여부(last)만 알려준다.
+    엔티티 대신 MemberDto로 바로 조회하고, 한 응답의 크기가 max-response-size를 넘지 않도록
+    size를 max-response-size / estimated-row-size 이하로 줄인다. (max-page-size 2000건을 한번에 올리지 않는다)
+    다음 페이지는 응답의 size 기준으로 계산되므로 page 번호만 올려서 요청하면 된다.
+    ex: /members/slice?page=0&size=50&sort=username, /members/slice?age=10
+     */
+    @GetMapping("/members/slice")
+    private PageCustom<MemberDto> sliceList(@PageableDefault(size = 20, sort = "id") Pageable pageable,
+                                            @RequestParam(value = "age", required = false) Integer age) {
+        Pageable sized = PageRequest.of(pageable.getPageNumber(), slicePageSize(pageable.getPageSize()), pageable.getSort());
+        Slice<MemberDto> slice = age == null
+                ? memberRepository.findMemberDtoSliceBy(sized)
+                : memberRepository.findMemberDtoSliceByAge(age, sized);
+        return new PageCustom<MemberDto>(slice);
+    }
+
+    private int slicePageSize(int requested) {
+        long rowsPerResponse = sliceMaxResponseSize.toBytes() / Math.max(1, sliceEstimatedRowSize.toBytes());
+        int maxPageSize = springDataWebProperties.getPageable().getMaxPageSize();
+        return (int) Math.max(1, Math.min(requested, Math.min(maxPageSize, rowsPerResponse)));
+    }
+    /*
+    Keyset(seek) 페이징 : count 쿼리 없이 커서 이후의 데이터만 조회하므로 깊은 페이지도 첫 페이지와 비용이 같다.
+    ex: /members/keyset?size=5&sort=username -> 응답의 nextCursor(prevCursor)를 cursor 파라미터로 넘겨 다음(이전) 페이지 조회
+    cursor를 넘기면 정렬 키는 cursor에 담긴 값을 따른다.
+     */
+    @GetMapping("/members/keyset")
+    private KeysetPage<MemberDto> keysetList(@RequestParam(value = "cursor", required = false) String cursor,
+                                             @RequestParam(value = "sort", defaultValue = "id") String sort,
+                                             @RequestParam(value = "size", defaultValue = "5") int size) {
+        KeysetCursor keysetCursor;
+        try {
+            keysetCursor = cursor == null
+                    ? KeysetCursor.first(KeysetCursor.SortKey.valueOf(sort.toUpperCase()))
+                    : KeysetCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+        int pageSize = Math.max(1, Math.min(size, springDataWebProperties.getPageable().getMaxPageSize()));
+        return memberRepository.findMemberKeyset(keysetCursor, pageSize).map(member -> new MemberDto(member));
+    }
+    /*
+    회원 전체 내보내기 : 전체 목록을 메모리에 올리지 않고 fetchSize 단위로 읽으면서 바로 응답에 쓴다.
+    ex: /members/export?format=csv
+     */
+    @GetMapping("/members/export")
+    private void export(@RequestParam(value = "format", defaultValue = "ndjson") String format,
+                        @RequestParam(value = "fetchSize", defaultValue = "500") int fetchSize,
+                        HttpServletResponse response) throws IOException {
+        boolean csv = "csv".equalsIgnoreCase(format);
+        if (!csv && !"ndjson".equalsIgnoreCase(format)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported format: " + format);
+        }
+        response.setCharacterEncoding("UTF-8");
+        if (csv) {
+            response.setContentType("text/csv");
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"members.csv\"");
+        } else {
+            response.setContentType("application/x-ndjson");
+        }
+
+        PrintWriter writer = response.getWriter();
+        if (csv) {
+            writer.println("id,username,teamName,createdDate,createdBy,lastModifiedDate,lastModifiedBy");
+        }
+        int flushSize = Math.max(1, fetchSize);
+        long[] written = {0};
+        memberRepository.forEachMemberDto(flushSize, memberDto -> {
+            try {
+                writer.println(csv ? toCsv(memberDto) : objectMapper.writeValueAsString(memberDto));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (++written[0] % flushSize == 0) {
+                flush(writer); //버퍼에 쌓아두지 않고 클라이언트로 바로 내보낸다.
+            }
+        });
+        flush(writer);
+    }
+
+    /*
+    PrintWriter는 IOException을 삼키므로 flush 후 checkError()로 확인한다.
+    클라이언트가 연결을 끊었으면 예외로 스트림을 닫아서 남은 행을 읽지 않고 트랜잭션과 커넥션을 바로 반환한다.
+     */
+    private void flush(PrintWriter writer) {
+        writer.flush();
+        if (writer.checkError()) {
+            throw new UncheckedIOException(new IOException("client disconnected during member export"));
+        }
+    }
+
+    private String toCsv(MemberDto memberDto) {
+        return String.join(",",
+                csvValue(memberDto.getId()),
+                csvValue(memberDto.getUsername()),
+                csvValue(memberDto.getTeamName()),
+                csvValue(memberDto.getCreatedDate()),
+                csvValue(memberDto.getCreatedBy()),
+                csvValue(memberDto.getLastModifiedDate()),
+                csvValue(memberDto.getLastModifiedBy()));
+    }
+
+    private String csvValue(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.contains(",") || text.contains("\"") || text.contains("\n")) {
+            return "\"" + text.replace("\"", "\"\"") + "\"";
+        }
+        return text;
+    }
 //
 //    @PostConstruct
 //    public void init() {
@@ -0,0 +1,44 @@
+package study.datajpa.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.data.web.SpringDataWebProperties;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import study.datajpa.dto.MemberDto;
+import study.datajpa.reactive.ReactiveMemberRepository;
+
+/*
+R2DBC 조회 api (/members, /members/{id}의 논블로킹 버전)
+스프링 MVC가 Flux/Mono 반환값을 서블릿 비동기 요청으로 처리하므로 db 응답을 기다리는 동안 톰캣 스레드를 점유하지 않는다.
+- application/x-ndjson : 한 건씩 요청(request(1))하면서 바로 응답에 쓴다. (클라이언트가 느리면 db에서도 덜 읽는다)
+ex: /reactive/members?page=0&size=20, /reactive/members/1
+ */
+@RestController
+@ConditionalOnProperty(name = "datajpa.reactive.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class ReactiveMemberController {
+
+    private final ReactiveMemberRepository reactiveMemberRepository;
+    private final SpringDataWebProperties springDataWebProperties;
+
+    @GetMapping(value = "/reactive/members", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<MemberDto> list(@RequestParam(value = "page", defaultValue = "0") int page,
+                                @RequestParam(value = "size", defaultValue = "20") int size) {
+        int pageSize = Math.max(1, Math.min(size, springDataWebProperties.getPageable().getMaxPageSize()));
+        return reactiveMemberRepository.findMemberDtos((long) Math.max(0, page) * pageSize, pageSize);
+    }
+
+    @GetMapping("/reactive/members/{id}")
+    public Mono<MemberDto> findMember(@PathVariable("id") Long id) {
+        return reactiveMemberRepository.findMemberDto(id)
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND)));
+    }
+}
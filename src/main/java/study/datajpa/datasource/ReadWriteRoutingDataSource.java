@@ -0,0 +1,68 @@
+package study.datajpa.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Map;
+
+/*
+읽기/쓰기 라우팅 DataSource
+- @Transactional(readOnly = true) 트랜잭션 -> replica
+- 그 외 (쓰기 트랜잭션, 트랜잭션 밖) -> primary
+트랜잭션의 readOnly 여부는 트랜잭션 시작 후에 정해지므로 반드시 LazyConnectionDataSourceProxy로 감싸서
+첫 sql 실행 시점에 커넥션을 얻도록 해야 한다.
+
+read-your-writes : 쓰기 트랜잭션이 커밋되면 같은 스레드(요청)의 읽기는 readYourWritesWindow 동안 primary로 보낸다.
+replica 복제 지연 때문에 방금 저장한 데이터가 조회되지 않는 문제를 막는다. (Duration.ZERO : 사용 안 함)
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Route {PRIMARY, REPLICA}
+
+    private final Duration readYourWritesWindow;
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, Duration readYourWritesWindow) {
+        this.readYourWritesWindow = readYourWritesWindow;
+        setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return Route.PRIMARY;
+        }
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            trackWrite();
+            return Route.PRIMARY;
+        }
+        return ReadYourWritesGuard.isPrimaryRequired() ? Route.PRIMARY : Route.REPLICA;
+    }
+
+    /*
+    쓰기 트랜잭션당 한번만 등록하고, 커밋된 경우에만 primary 고정 시간을 시작한다.
+     */
+    private void trackWrite() {
+        if (readYourWritesWindow.isZero()
+                || !TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.hasResource(this)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                ReadYourWritesGuard.markWrite(readYourWritesWindow);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(ReadWriteRoutingDataSource.this);
+            }
+        });
+    }
+}
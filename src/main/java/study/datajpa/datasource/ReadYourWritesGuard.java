@@ -0,0 +1,50 @@
+package study.datajpa.datasource;
+
+import java.time.Duration;
+
+/*
+스레드(요청)별 primary 고정 시간
+요청이 끝나면 ReadYourWritesFilter가 clear() 하므로 다른 요청에는 영향을 주지 않는다.
+ */
+public final class ReadYourWritesGuard {
+
+    private static final ThreadLocal<Long> primaryUntil = new ThreadLocal<>();
+
+    private ReadYourWritesGuard() {
+    }
+
+    public static void markWrite(Duration window) {
+        primaryUntil.set(System.nanoTime() + window.toNanos());
+    }
+
+    public static boolean isPrimaryRequired() {
+        Long until = primaryUntil.get();
+        if (until == null) {
+            return false;
+        }
+        if (System.nanoTime() - until < 0) {
+            return true;
+        }
+        primaryUntil.remove();
+        return false;
+    }
+
+    /*
+    다른 스레드에서 같은 요청의 일부를 실행할 때 (ParallelPageExecutor) 현재 상태를 넘겨준다.
+     */
+    public static Long capture() {
+        return primaryUntil.get();
+    }
+
+    public static void restore(Long until) {
+        if (until == null) {
+            primaryUntil.remove();
+        } else {
+            primaryUntil.set(until);
+        }
+    }
+
+    public static void clear() {
+        primaryUntil.remove();
+    }
+}
@@ -25,6 +25,18 @@ public class MemberDto extends BaseEntity {
         this.teamName = teamName;
     }
 
+    /*
+    JPQL new 연산자로 바로 조회할 때 사용 (엔티티를 거치지 않고 auditing 컬럼까지 채운다.)
+     */
+    public MemberDto(Long id, String username, String teamName,
+                     LocalDateTime createdDate, String createdBy, LocalDateTime lastModifiedDate, String lastModifiedBy) {
+        this(id, username, teamName);
+        super.setCreatedDate(createdDate);
+        super.setCreatedBy(createdBy);
+        super.setLastModifiedDate(lastModifiedDate);
+        super.setLastModifiedBy(lastModifiedBy);
+    }
+
     public MemberDto(Member member) {
         super.setCreatedBy(member.getCreatedBy());
         super.setCreatedDate(member.getCreatedDate());
@@ -2,28 +2,18 @@ package study.datajpa.entity;
 
 import lombok.Getter;
 import lombok.Setter;
-import org.springframework.data.annotation.CreatedBy;
-import org.springframework.data.annotation.CreatedDate;
-import org.springframework.data.annotation.LastModifiedBy;
-import org.springframework.data.annotation.LastModifiedDate;
-import org.springframework.data.jpa.domain.support.AuditingEntityListener;
-import org.springframework.data.jpa.repository.Modifying;
 
 import javax.persistence.Column;
-import javax.persistence.EntityListeners;
 import javax.persistence.MappedSuperclass;
-import java.time.LocalDateTime;
 /*
-spring data jpa를 활용 auditing 목적 클래스
+auditing 목적 클래스 (등록자, 수정자)
+값은 BaseTimeEntity에 등록된 AuditListener가 채운다.
  */
-@EntityListeners(AuditingEntityListener.class)
 @MappedSuperclass
 @Getter @Setter
 public class BaseEntity extends BaseTimeEntity {
 
-    @CreatedBy
     @Column(updatable = false)
     private String createdBy;
-    @LastModifiedBy
     private String lastModifiedBy;
 }
@@ -2,21 +2,17 @@ package study.datajpa.entity;
 
 import lombok.Getter;
 import lombok.Setter;
-import org.springframework.data.annotation.CreatedDate;
-import org.springframework.data.annotation.LastModifiedDate;
-import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+import study.datajpa.audit.AuditListener;
 
 import javax.persistence.Column;
 import javax.persistence.EntityListeners;
 import javax.persistence.MappedSuperclass;
 import java.time.LocalDateTime;
 @MappedSuperclass
-@EntityListeners(AuditingEntityListener.class)
+@EntityListeners(AuditListener.class)
 @Getter @Setter
 public class BaseTimeEntity {
-    @CreatedDate
     @Column(updatable = false)
     private LocalDateTime createdDate;
-    @LastModifiedDate
     private LocalDateTime lastModifiedDate;
 }
@@ -4,11 +4,15 @@ import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.data.domain.Persistable;
 
 import javax.persistence.*;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE) //JPQL 벌크 수정 시 하이버네이트가 Member 캐시 영역을 자동으로 무효화한다.
 @Getter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id", "username", "age"}) //연관관계 필드는 ToString에 넣지 말 것. 무한루프빠질 가능성있음.
@@ -18,12 +22,23 @@ import javax.persistence.*;
         name = "Member.findByUsername",
         query = "select m from Member m where m.username = :username"
 )
+@EntityListeners(MemberChangeListener.class)
+@Table(indexes = @Index(name = "idx_member_username_id", columnList = "username, member_id")) //username keyset 페이징 (findMemberKeyset)
 public class Member extends BaseEntity {
-    @Id @GeneratedValue
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "member_seq_generator")
+    @SequenceGenerator(name = "member_seq_generator", sequenceName = "member_seq", allocationSize = 50)
     @Column(name = "member_id")
     private Long id;
     private String username;
     private int age;
+    /*
+    낙관적 락 : 수정 시 version 조건으로 update, 다른 트랜잭션이 먼저 수정했으면 OptimisticLockException
+    컬럼 추가 전에 저장된 행은 version이 null이므로 먼저 채워야 한다. (update member set version = 0 where version is null)
+    네이티브 update(MemberBulkUpdater, MemberWriteBehindBuffer)는 coalesce(version, 0) + 1로 증가시킨다.
+     */
+    @Version
+    private Long version;
 
     @ManyToOne(fetch = FetchType.LAZY, cascade = CascadeType.PERSIST)
     @JoinColumn(name = "team_id")
@@ -48,6 +63,10 @@ public class Member extends BaseEntity {
         this.username = username;
     }
 
+    public void changeAge(int age) {
+        this.age = age;
+    }
+
     //연관관계 편의 메서드
     public void changeTeam(Team team){
         this.team = team;
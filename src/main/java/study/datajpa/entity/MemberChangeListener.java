@@ -0,0 +1,27 @@
+package study.datajpa.entity;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/*
+Member 엔티티 리스너
+스프링 부트가 하이버네이트에 SpringBeanContainer를 등록해주므로 엔티티 리스너도 스프링 빈을 주입받을 수 있다.
+엔티티 패키지가 리포지토리(CountCache)에 의존하지 않도록 MemberChangedEvent만 발행한다. (같은 스레드에서 동기 처리)
+update도 count 조건(age 등)에 걸리는 행을 바꿀 수 있으므로 변경 감지로 update 될 때도 발행한다.
+ */
+@RequiredArgsConstructor
+public class MemberChangeListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Member member) {
+        eventPublisher.publishEvent(new MemberChangedEvent(member.getId()));
+    }
+}
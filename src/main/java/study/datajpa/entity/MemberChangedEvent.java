@@ -0,0 +1,13 @@
+package study.datajpa.entity;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/*
+Member insert/update/delete 이벤트 (MemberChangeListener가 flush 시점에 발행)
+ */
+@Getter
+@RequiredArgsConstructor
+public class MemberChangedEvent {
+    private final Long memberId;
+}
@@ -0,0 +1,106 @@
+package study.datajpa.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.hibernate.Session;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.data.repository.Repository;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.ClassUtils;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/*
+리포지토리 메서드 단위 sql 지표 (repository, method 태그)
+- repository.invocations : 메서드 실행 시간
+- repository.statements : 호출당 실행한 statement 수
+- repository.rows : 호출당 읽은 행 수
+- repository.jdbc : 호출당 jdbc 실행 시간
+- repository.entities : 호출 직후 영속성 컨텍스트의 엔티티 수
+  (OSIV나 바깥 트랜잭션으로 영속성 컨텍스트가 열려있을 때만 기록, 메서드 자체 트랜잭션의 영속성 컨텍스트는 이미 닫혀있다)
+repository 태그는 호출 대상(target)의 리포지토리 인터페이스 이름이다.
+시그니처의 선언 타입은 상속받은 메서드(findAll, saveAllBatched ...)에서 JpaRepository, MemberRepositoryCustom이 되므로 쓰지 않는다.
+meter는 (repository, method)별로 한 번만 등록하고 재사용한다.
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class RepositoryMetricsAspect {
+
+    private final MeterRegistry meterRegistry;
+    private final EntityManagerFactory entityManagerFactory;
+    private final Map<Class<?>, String> repositoryNames = new ConcurrentHashMap<>();
+    private final Map<String, Meters> meters = new ConcurrentHashMap<>();
+
+    @Around("execution(* study.datajpa.repository.MemberRepository.*(..))"
+            + " || execution(* study.datajpa.repository.MemberJpaRepository.*(..))")
+    public Object measure(ProceedingJoinPoint joinPoint) throws Throwable {
+        SqlMetricsContext.Snapshot start = SqlMetricsContext.snapshot();
+        long startNanos = System.nanoTime();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            long elapsed = System.nanoTime() - startNanos;
+            SqlMetricsContext.Snapshot used = SqlMetricsContext.snapshot().since(start);
+            Object target = joinPoint.getTarget();
+            String repository = repositoryNames.computeIfAbsent(target.getClass(), type -> repositoryName(target));
+            String method = joinPoint.getSignature().getName();
+
+            Meters meter = meters.computeIfAbsent(repository + "#" + method, key -> new Meters(repository, method));
+            meter.invocations.record(elapsed, TimeUnit.NANOSECONDS);
+            meter.statements.record(used.getStatements());
+            meter.rows.record(used.getRows());
+            meter.jdbc.record(used.getJdbcNanos(), TimeUnit.NANOSECONDS);
+            EntityManagerHolder holder = (EntityManagerHolder) TransactionSynchronizationManager.getResource(entityManagerFactory);
+            if (holder != null && holder.getEntityManager().isOpen()) {
+                meter.entities.record(holder.getEntityManager().unwrap(Session.class).getStatistics().getEntityCount());
+            }
+        }
+    }
+
+    /*
+    spring data 리포지토리는 프록시이므로 프록시가 구현한 인터페이스 중 Repository 하위 인터페이스(MemberRepository)를 찾는다.
+    직접 만든 리포지토리 클래스(MemberJpaRepository)는 클래스 이름을 쓴다.
+     */
+    private static String repositoryName(Object target) {
+        if (target instanceof Repository) {
+            for (Class<?> type : AopProxyUtils.proxiedUserInterfaces(target)) {
+                if (Repository.class.isAssignableFrom(type) && type != Repository.class) {
+                    return type.getSimpleName();
+                }
+            }
+        }
+        return ClassUtils.getUserClass(target).getSimpleName();
+    }
+
+    private class Meters {
+        private final Timer invocations;
+        private final DistributionSummary statements;
+        private final DistributionSummary rows;
+        private final Timer jdbc;
+        private final DistributionSummary entities;
+
+        private Meters(String repository, String method) {
+            invocations = Timer.builder("repository.invocations").tag("repository", repository).tag("method", method)
+                    .publishPercentileHistogram().register(meterRegistry);
+            statements = DistributionSummary.builder("repository.statements").tag("repository", repository).tag("method", method)
+                    .publishPercentileHistogram().register(meterRegistry);
+            rows = DistributionSummary.builder("repository.rows").tag("repository", repository).tag("method", method)
+                    .publishPercentileHistogram().register(meterRegistry);
+            jdbc = Timer.builder("repository.jdbc").tag("repository", repository).tag("method", method)
+                    .publishPercentileHistogram().register(meterRegistry);
+            entities = DistributionSummary.builder("repository.entities").tag("repository", repository).tag("method", method)
+                    .publishPercentileHistogram().register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package study.datajpa.metrics;
+
+import lombok.Getter;
+
+/*
+스레드별 jdbc 실행 누적 카운터
+p6spy 리스너가 누적하고, 요청(필터)/리포지토리 메서드(aspect) 단위로 시작 시점의 스냅샷과 비교하여 차이를 기록한다.
+ */
+public final class SqlMetricsContext {
+
+    private static final ThreadLocal<Counters> COUNTERS = ThreadLocal.withInitial(Counters::new);
+
+    private SqlMetricsContext() {
+    }
+
+    public static Counters current() {
+        return COUNTERS.get();
+    }
+
+    public static Snapshot snapshot() {
+        Counters counters = COUNTERS.get();
+        return new Snapshot(counters.statements, counters.rows, counters.jdbcNanos);
+    }
+
+    /*
+    다른 스레드에서 같은 요청을 위해 실행한 jdbc 실행(ParallelPageExecutor의 count 쿼리)을 현재 스레드에 합산한다.
+     */
+    public static void record(Snapshot used) {
+        if (used != null) {
+            COUNTERS.get().add(used);
+        }
+    }
+
+    public static class Counters {
+        long statements;
+        long rows;
+        long jdbcNanos;
+
+        void statementExecuted(long nanos) {
+            statements++;
+            jdbcNanos += nanos;
+        }
+
+        void rowFetched(long nanos) {
+            rows++;
+            jdbcNanos += nanos;
+        }
+
+        void add(Snapshot used) {
+            statements += used.statements;
+            rows += used.rows;
+            jdbcNanos += used.jdbcNanos;
+        }
+    }
+
+    @Getter
+    public static class Snapshot {
+        private final long statements;
+        private final long rows;
+        private final long jdbcNanos;
+
+        private Snapshot(long statements, long rows, long jdbcNanos) {
+            this.statements = statements;
+            this.rows = rows;
+            this.jdbcNanos = jdbcNanos;
+        }
+
+        public Snapshot since(Snapshot start) {
+            return new Snapshot(statements - start.statements, rows - start.rows, jdbcNanos - start.jdbcNanos);
+        }
+    }
+}
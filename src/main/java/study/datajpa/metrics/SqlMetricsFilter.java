@@ -0,0 +1,79 @@
+package study.datajpa.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/*
+http 요청 단위 sql 지표
+- sql.request.statements : 요청당 실행한 statement 수
+- sql.request.rows : 요청당 읽은 행 수
+- sql.request.jdbc : 요청당 jdbc 실행 시간
+- sql.request.entities : 요청 중 영속성 컨텍스트의 엔티티 수 (SqlMetricsResponseAdvice에서 측정)
+/actuator/metrics/sql.request.statements?tag=uri:/members 처럼 조회한다.
+meter는 uri 패턴별로 한 번만 등록하고 재사용한다.
+ */
+@Component
+@RequiredArgsConstructor
+public class SqlMetricsFilter extends OncePerRequestFilter {
+
+    static final String ENTITY_COUNT_ATTRIBUTE = SqlMetricsFilter.class.getName() + ".entityCount";
+    static final String START_ATTRIBUTE = SqlMetricsFilter.class.getName() + ".start";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, UriMeters> meters = new ConcurrentHashMap<>();
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        SqlMetricsContext.Snapshot start = SqlMetricsContext.snapshot();
+        request.setAttribute(START_ATTRIBUTE, start);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            SqlMetricsContext.Snapshot used = SqlMetricsContext.snapshot().since(start);
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+
+            UriMeters meter = meters.computeIfAbsent(uri, UriMeters::new);
+            meter.statements.record(used.getStatements());
+            meter.rows.record(used.getRows());
+            meter.jdbc.record(used.getJdbcNanos(), TimeUnit.NANOSECONDS);
+            Object entityCount = request.getAttribute(ENTITY_COUNT_ATTRIBUTE);
+            if (entityCount != null) {
+                meter.entities.record((Integer) entityCount);
+            }
+        }
+    }
+
+    private class UriMeters {
+        private final DistributionSummary statements;
+        private final DistributionSummary rows;
+        private final Timer jdbc;
+        private final DistributionSummary entities;
+
+        private UriMeters(String uri) {
+            statements = DistributionSummary.builder("sql.request.statements").tag("uri", uri)
+                    .publishPercentileHistogram().register(meterRegistry);
+            rows = DistributionSummary.builder("sql.request.rows").tag("uri", uri)
+                    .publishPercentileHistogram().register(meterRegistry);
+            jdbc = Timer.builder("sql.request.jdbc").tag("uri", uri)
+                    .publishPercentileHistogram().register(meterRegistry);
+            entities = DistributionSummary.builder("sql.request.entities").tag("uri", uri)
+                    .publishPercentileHistogram().register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package study.datajpa.metrics;
+
+import com.p6spy.engine.common.ResultSetInformation;
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+
+/*
+p6spy 이벤트 리스너 : p6spy-spring-boot-starter가 JdbcEventListener 타입의 빈을 자동으로 등록한다.
+로그를 남기지 않고 현재 스레드의 카운터만 올린다.
+ */
+@Component
+public class SqlMetricsJdbcEventListener extends SimpleJdbcEventListener {
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        SqlMetricsContext.current().statementExecuted(timeElapsedNanos);
+    }
+
+    @Override
+    public void onAfterResultSetNext(ResultSetInformation resultSetInformation, long timeElapsedNanos, boolean hasNext, SQLException e) {
+        if (hasNext) {
+            SqlMetricsContext.current().rowFetched(timeElapsedNanos);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package study.datajpa.metrics;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Session;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import javax.persistence.EntityManagerFactory;
+
+/*
+응답 바디를 쓰기 직전(컨트롤러 실행 완료 후)에
+- 지금까지 실행한 statement 수를 X-Sql-Statement-Count 헤더로 내려준다.
+- OSIV로 열려있는 영속성 컨텍스트의 엔티티 수를 기록한다.
+ */
+@RestControllerAdvice
+@RequiredArgsConstructor
+public class SqlMetricsResponseAdvice implements ResponseBodyAdvice<Object> {
+
+    public static final String STATEMENT_COUNT_HEADER = "X-Sql-Statement-Count";
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (!(request instanceof ServletServerHttpRequest)) {
+            return body;
+        }
+        Object start = ((ServletServerHttpRequest) request).getServletRequest().getAttribute(SqlMetricsFilter.START_ATTRIBUTE);
+        if (start != null) {
+            long statements = SqlMetricsContext.snapshot().since((SqlMetricsContext.Snapshot) start).getStatements();
+            response.getHeaders().set(STATEMENT_COUNT_HEADER, String.valueOf(statements));
+        }
+        EntityManagerHolder holder = (EntityManagerHolder) TransactionSynchronizationManager.getResource(entityManagerFactory);
+        if (holder != null && holder.getEntityManager().isOpen()) {
+            int entityCount = holder.getEntityManager().unwrap(Session.class).getStatistics().getEntityCount();
+            ((ServletServerHttpRequest) request).getServletRequest().setAttribute(SqlMetricsFilter.ENTITY_COUNT_ATTRIBUTE, entityCount);
+        }
+        return body;
+    }
+}
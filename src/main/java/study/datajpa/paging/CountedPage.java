@@ -0,0 +1,30 @@
+package study.datajpa.paging;
+
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.function.Function;
+
+/*
+count 캐시를 거친 Page
+exactTotal = false 이면 totalElements는 캐시에 남아있던 근사값이다.
+ */
+public class CountedPage<T> extends PageImpl<T> {
+
+    private final boolean exactTotal;
+
+    public CountedPage(List<T> content, Pageable pageable, long total, boolean exactTotal) {
+        super(content, pageable, total);
+        this.exactTotal = exactTotal;
+    }
+
+    public boolean isExactTotal() {
+        return exactTotal;
+    }
+
+    @Override
+    public <U> CountedPage<U> map(Function<? super T, ? extends U> converter) {
+        return new CountedPage<>(getConvertedContent(converter), getPageable(), getTotalElements(), exactTotal);
+    }
+}
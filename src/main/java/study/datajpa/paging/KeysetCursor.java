@@ -0,0 +1,71 @@
+package study.datajpa.paging;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/*
+Keyset(seek) 페이징의 커서
+정렬 키(id 또는 username + id)와 조회 방향을 담아 클라이언트에게는 불투명한(opaque) 토큰으로 전달한다.
+클라이언트는 응답의 nextCursor / prevCursor를 그대로 다시 넘기기만 하면 된다.
+ */
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public class KeysetCursor {
+
+    public enum SortKey { ID, USERNAME }
+
+    private static final String SEPARATOR = ":";
+    private static final String VALUE_PREFIX = "="; //null("")과 빈 문자열("=")을 구분한다.
+
+    private final SortKey sortKey;
+    private final boolean backward;
+    private final Long id;
+    private final String username;
+
+    public static KeysetCursor first(SortKey sortKey) {
+        return new KeysetCursor(sortKey, false, null, null);
+    }
+
+    public static KeysetCursor after(SortKey sortKey, Long id, String username) {
+        return new KeysetCursor(sortKey, false, id, username);
+    }
+
+    public static KeysetCursor before(SortKey sortKey, Long id, String username) {
+        return new KeysetCursor(sortKey, true, id, username);
+    }
+
+    public boolean isFirst() {
+        return id == null;
+    }
+
+    public String encode() {
+        String raw = (backward ? "P" : "N") + SEPARATOR + sortKey.name() + SEPARATOR + id + SEPARATOR
+                + (username == null ? "" : VALUE_PREFIX + username);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /*
+    토큰이 변조되었거나 형식이 맞지 않으면 IllegalArgumentException
+     */
+    public static KeysetCursor decode(String token) {
+        String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        String[] parts = raw.split(SEPARATOR, 4); //username에 ':'가 포함될 수 있으므로 최대 4개로 자른다.
+        if (parts.length != 4 || !("N".equals(parts[0]) || "P".equals(parts[0]))) {
+            throw new IllegalArgumentException("Invalid keyset cursor: " + token);
+        }
+        SortKey sortKey = SortKey.valueOf(parts[1]);
+        Long id = Long.valueOf(parts[2]);
+        String username = null;
+        if (!parts[3].isEmpty()) {
+            if (!parts[3].startsWith(VALUE_PREFIX)) {
+                throw new IllegalArgumentException("Invalid keyset cursor: " + token);
+            }
+            username = parts[3].substring(VALUE_PREFIX.length());
+        }
+        return new KeysetCursor(sortKey, "P".equals(parts[0]), id, username);
+    }
+}
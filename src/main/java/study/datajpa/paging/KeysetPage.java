@@ -0,0 +1,43 @@
+package study.datajpa.paging;
+
+import lombok.Getter;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/*
+Keyset 페이징 응답
+PageCustom과 비슷한 형태지만 totalElements, totalPages가 없다. (count 쿼리를 날리지 않는다.)
+대신 다음/이전 페이지를 조회할 수 있는 커서를 내려준다.
+ */
+@Getter
+public class KeysetPage<T> implements Serializable {
+    private List<T> content;
+    private KeysetCursor.SortKey sortKey;
+    private int size;
+    private int numberOfElements;
+    private boolean first;
+    private boolean last;
+    private boolean empty;
+    private String nextCursor;
+    private String prevCursor;
+
+    public KeysetPage(List<T> content, KeysetCursor.SortKey sortKey, int size, String nextCursor, String prevCursor) {
+        this.content = content;
+        this.sortKey = sortKey;
+        this.size = size;
+        this.numberOfElements = content.size();
+        this.first = prevCursor == null;
+        this.last = nextCursor == null;
+        this.empty = content.isEmpty();
+        this.nextCursor = nextCursor;
+        this.prevCursor = prevCursor;
+    }
+
+    public <U> KeysetPage<U> map(Function<? super T, ? extends U> converter) {
+        List<U> converted = content.stream().map(converter).collect(Collectors.toList());
+        return new KeysetPage<>(converted, sortKey, size, nextCursor, prevCursor);
+    }
+}
@@ -18,6 +18,7 @@ public class PageCustom<T> implements Serializable {
     private Sort sort;
     private int numberOfElements;
     private boolean empty;
+    private boolean exactTotal = true;
 
     /*
     커스텀하지 않은 기본 Pageable과 page번호 제외하고 동일하게 구성
@@ -34,6 +35,9 @@ public class PageCustom<T> implements Serializable {
         this.sort = page.getSort();
         this.numberOfElements = page.getNumberOfElements();
         this.empty = page.isEmpty();
+        if (page instanceof CountedPage) {
+            this.exactTotal = ((CountedPage<T>) page).isExactTotal();
+        }
     }
 
     public PageCustom(Slice<T> slice) {
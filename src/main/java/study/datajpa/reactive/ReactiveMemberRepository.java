@@ -0,0 +1,67 @@
+package study.datajpa.reactive;
+
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Row;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import study.datajpa.dto.MemberDto;
+
+import java.time.LocalDateTime;
+
+/*
+R2DBC로 member/team 테이블을 직접 조회하는 읽기 전용 리포지토리 (JPA 엔티티, 영속성 컨텍스트를 거치지 않는다)
+MemberRepository.MEMBER_DTO_QUERY와 같은 컬럼을 MemberDto로 바로 매핑한다.
+ */
+public class ReactiveMemberRepository implements DisposableBean {
+
+    private static final String MEMBER_DTO_SQL = "select m.member_id, m.username, t.name as team_name,"
+            + " m.created_date, m.created_by, m.last_modified_date, m.last_modified_by"
+            + " from member m left join team t on m.team_id = t.team_id";
+
+    private final DatabaseClient databaseClient;
+    private final ConnectionFactory connectionFactory;
+
+    public ReactiveMemberRepository(ConnectionFactory connectionFactory) {
+        this.connectionFactory = connectionFactory;
+        this.databaseClient = DatabaseClient.create(connectionFactory);
+    }
+
+    /*
+    id 순서로 offset부터 limit건. 구독자가 요청(request)한 만큼만 행을 내려보낸다.
+     */
+    public Flux<MemberDto> findMemberDtos(long offset, int limit) {
+        return databaseClient.sql(MEMBER_DTO_SQL + " order by m.member_id limit :limit offset :offset")
+                .bind("limit", limit)
+                .bind("offset", offset)
+                .map((row, metadata) -> toMemberDto(row))
+                .all();
+    }
+
+    public Mono<MemberDto> findMemberDto(Long id) {
+        return databaseClient.sql(MEMBER_DTO_SQL + " where m.member_id = :id")
+                .bind("id", id)
+                .map((row, metadata) -> toMemberDto(row))
+                .one();
+    }
+
+    private static MemberDto toMemberDto(Row row) {
+        return new MemberDto(
+                row.get("member_id", Long.class),
+                row.get("username", String.class),
+                row.get("team_name", String.class),
+                row.get("created_date", LocalDateTime.class),
+                row.get("created_by", String.class),
+                row.get("last_modified_date", LocalDateTime.class),
+                row.get("last_modified_by", String.class));
+    }
+
+    @Override
+    public void destroy() {
+        if (connectionFactory instanceof Disposable) {
+            ((Disposable) connectionFactory).dispose(); //커넥션 풀 종료
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package study.datajpa.repository;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.datajpa.entity.MemberChangedEvent;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/*
+페이징 count 쿼리 결과 캐시
+count 쿼리 + 바인딩 파라미터를 키로 total을 ttl 동안 재사용한다.
+Member insert/update/delete(MemberChangedEvent), 벌크 수정 시 invalidate() 되며,
+approximate 모드에서는 invalidate 되었거나 ttl이 지난 값도 approximate-ttl 동안은 그대로 돌려준다. (exact = false)
+ */
+@Component
+public class CountCache {
+
+    private final ConcurrentMap<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong(); //invalidate 할 때마다 증가, 이전 세대의 값은 stale
+    private final long ttlNanos;
+    private final long approximateTtlNanos;
+    private final int maxEntries;
+
+    public CountCache(@Value("${datajpa.count-cache.ttl:30s}") Duration ttl,
+                      @Value("${datajpa.count-cache.approximate-ttl:10m}") Duration approximateTtl,
+                      @Value("${datajpa.count-cache.max-entries:1000}") int maxEntries) {
+        this.ttlNanos = ttl.toNanos();
+        this.approximateTtlNanos = approximateTtl.toNanos();
+        this.maxEntries = maxEntries;
+    }
+
+    /*
+    무효화되지 않았고 ttl 안에 있는 값만 돌려준다. 없으면 null (count 쿼리를 실행하지 않는다)
+     */
+    public Total getIfFresh(String countQuery, Map<String, Object> params) {
+        Entry entry = entries.get(new Key(countQuery, new TreeMap<>(params)));
+        if (entry == null || entry.generation != generation.get() || System.nanoTime() - entry.loadedAt >= ttlNanos) {
+            return null;
+        }
+        return new Total(entry.value, true);
+    }
+
+    public Total get(String countQuery, Map<String, Object> params, boolean exact, LongSupplier loader) {
+        Key key = new Key(countQuery, new TreeMap<>(params));
+        long now = System.nanoTime();
+        long current = generation.get(); //count 쿼리 실행 중에 무효화되면 저장하는 값도 stale
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            long age = now - entry.loadedAt;
+            if (entry.generation == current && age < ttlNanos) {
+                return new Total(entry.value, true);
+            }
+            if (!exact && age < approximateTtlNanos) {
+                return new Total(entry.value, false);
+            }
+        }
+        long value = loader.getAsLong();
+        if (entries.size() >= maxEntries) {
+            entries.clear();
+        }
+        entries.put(key, new Entry(value, now, current));
+        return new Total(value, true);
+    }
+
+    /*
+    트랜잭션 안에서 호출되면 커밋 이후에 한번 더 무효화한다.
+    (커밋 전에 다른 요청이 이전 count를 다시 캐싱하는 경우 방지)
+    무효화는 세대 번호 증가뿐이므로 변경마다 호출하고, 커밋 이후 무효화만 트랜잭션당 한번 등록한다.
+    (같은 트랜잭션에서 count를 다시 캐싱한 뒤에 생긴 변경도 무효화된다)
+     */
+    @EventListener
+    public void onMemberChanged(MemberChangedEvent event) {
+        invalidate();
+    }
+
+    public void invalidate() {
+        invalidateNow();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.hasResource(this)) {
+            TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidateNow();
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(CountCache.this);
+                }
+            });
+        }
+    }
+
+    private void invalidateNow() {
+        generation.incrementAndGet();
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class Total {
+        private final long value;
+        private final boolean exact;
+    }
+
+    @RequiredArgsConstructor
+    private static class Entry {
+        private final long value;
+        private final long loadedAt;
+        private final long generation;
+    }
+
+    @RequiredArgsConstructor
+    private static class Key {
+        private final String query;
+        private final Map<String, Object> params;
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return query.equals(key.query) && params.equals(key.params);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(query, params);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package study.datajpa.repository;
+
+import study.datajpa.entity.Item;
+
+import java.util.Collection;
+
+public interface ItemRepositoryCustom {
+    /*
+    id를 직접 할당하는 Item 대량 저장 : 이미 존재하는 id는 건너뛰고 없는 id만 insert 한다. (멱등)
+    insert된 건수를 반환한다.
+     */
+    int upsertAll(Collection<Item> items);
+}
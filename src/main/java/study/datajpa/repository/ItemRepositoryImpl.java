@@ -0,0 +1,84 @@
+package study.datajpa.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.entity.Item;
+
+import javax.persistence.EntityManager;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+save()는 id가 있는 Item을 isNew()로 판단하고, 준영속 Item은 merge(select 후 insert)를 수행한다.
+대량 적재 시에는 건마다 select 하지 않도록 H2의 MERGE INTO ... USING 문 하나에 여러 행을 담아 실행한다.
+(MERGE INTO ... KEY(id)는 기존 행의 created_date까지 덮어쓰므로 WHEN NOT MATCHED 일 때만 insert)
+jdbc로 직접 실행하므로 하이버네이트가 item 테이블의 쿼리 캐시 timestamp를 갱신하지 않는다.
+지금은 Item이 2차 캐시 대상이 아니고 cacheable 힌트를 준 Item 조회도 없어서 비울 region이 없다.
+Item 조회에 쿼리 캐시를 쓰게 되면 MemberBulkUpdater처럼 upsertAll 이후 해당 region을 직접 비워야 한다.
+ */
+@RequiredArgsConstructor
+public class ItemRepositoryImpl implements ItemRepositoryCustom {
+
+    private final EntityManager em;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${datajpa.batch.upsert-chunk-size:500}")
+    private int chunkSize;
+
+    /*
+    created_date는 바인딩 파라미터로만 계산하고 호출한 쪽의 Item에는 쓰지 않는다.
+    (Item.isNew()가 createdDate로 판단하므로 값을 채우면 이후 save()가 persist 대신 merge가 된다)
+     */
+    @Override
+    @Transactional
+    public int upsertAll(Collection<Item> items) {
+        em.flush(); //영속성 컨텍스트에 남아있는 Item insert를 먼저 반영
+
+        //같은 문장 안에 같은 id가 두번 있으면 둘 다 insert 되어 pk 제약조건에 걸리므로 중복 제거
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now()); //jdbc로 저장하므로 @CreatedDate가 동작하지 않는다.
+        Map<String, Timestamp> distinct = new LinkedHashMap<>();
+        for (Item item : items) {
+            if (item.getId() == null) {
+                throw new IllegalArgumentException("Item id must not be null");
+            }
+            distinct.putIfAbsent(item.getId(), item.getCreatedDate() == null ? now : Timestamp.valueOf(item.getCreatedDate()));
+        }
+
+        List<Map.Entry<String, Timestamp>> chunk = new ArrayList<>(chunkSize);
+        int inserted = 0;
+        for (Map.Entry<String, Timestamp> row : distinct.entrySet()) {
+            chunk.add(row);
+            if (chunk.size() == chunkSize) {
+                inserted += merge(chunk);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            inserted += merge(chunk);
+        }
+        return inserted;
+    }
+
+    private int merge(List<Map.Entry<String, Timestamp>> chunk) {
+        StringBuilder sql = new StringBuilder("merge into item t using (values ");
+        Object[] args = new Object[chunk.size() * 2];
+        for (int i = 0; i < chunk.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append("(cast(? as varchar), cast(? as timestamp))");
+            args[i * 2] = chunk.get(i).getKey();
+            args[i * 2 + 1] = chunk.get(i).getValue();
+        }
+        sql.append(") s(id, created_date) on t.id = s.id")
+                .append(" when not matched then insert (id, created_date) values (s.id, s.created_date)");
+        return jdbcTemplate.update(sql.toString(), args);
+    }
+}
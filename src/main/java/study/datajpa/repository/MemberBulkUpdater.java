@@ -0,0 +1,85 @@
+package study.datajpa.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Cache;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.datajpa.audit.AuditContext;
+import study.datajpa.entity.Member;
+
+import javax.persistence.EntityManager;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/*
+Member 벌크 수정 (MemberRepository.bulkAgePlus, MemberJpaRepository.bulkAgePlus 공통)
+JPQL 벌크 수정의 문제
+1. 엔티티 리스너를 거치지 않으므로 lastModifiedBy, lastModifiedDate가 갱신되지 않는다.
+2. 영속성 컨텍스트의 엔티티는 수정 전 값 그대로다. (clearAutomatically = true 는 영속성 컨텍스트 전체를 비운다)
+3. 하이버네이트가 Member 2차 캐시 영역 전체를 비운다.
+-> auditing 컬럼과 @Version을 같은 update 문에서 채우고, h2의 data change delta table(final table)로 수정된 id를 같은 문장에서 돌려받아
+   해당 엔티티만 영속성 컨텍스트와 2차 캐시에서 제거한다. (sql 1번)
+ */
+@Component
+@RequiredArgsConstructor
+public class MemberBulkUpdater {
+
+    private static final String AGE_PLUS_SQL = "select member_id from final table ("
+            + "update member set age = age + 1, version = coalesce(version, 0) + 1, last_modified_by = ?, last_modified_date = ? where age >= ?)";
+
+    private final EntityManager em;
+    private final AuditContext auditContext;
+    private final CountCache countCache;
+
+    public int agePlus(int age) {
+        em.flush(); //영속성 컨텍스트의 변경 내용을 먼저 반영해야 벌크 수정 결과와 어긋나지 않는다.
+        @SuppressWarnings("unchecked")
+        List<Number> result = em.createNativeQuery(AGE_PLUS_SQL)
+                .setParameter(1, auditContext.auditor())
+                .setParameter(2, Timestamp.valueOf(auditContext.now()))
+                .setParameter(3, age)
+                .getResultList();
+        Set<Long> ids = result.stream().map(Number::longValue).collect(Collectors.toSet());
+        evict(ids);
+        return ids.size();
+    }
+
+    private void evict(Set<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        for (Map.Entry<Object, EntityEntry> entry : session.getPersistenceContextInternal().reentrantSafeEntityEntries()) {
+            Object entity = entry.getKey();
+            if (entity instanceof Member && ids.contains(((Member) entity).getId())) {
+                em.detach(entity);
+            }
+        }
+
+        Cache cache = session.getSessionFactory().getCache();
+        evictSecondLevel(cache, ids);
+        //커밋 전에 다른 트랜잭션이 수정 전 값을 다시 캐시에 올릴 수 있으므로 커밋 후 한번 더 제거
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evictSecondLevel(cache, ids);
+                }
+            });
+        }
+        countCache.invalidate();
+    }
+
+    private void evictSecondLevel(Cache cache, Set<Long> ids) {
+        for (Long id : ids) {
+            cache.evictEntityData(Member.class, id);
+        }
+        cache.evictQueryRegion(MemberRepository.MEMBER_QUERY_CACHE);
+    }
+}
@@ -2,6 +2,7 @@ package study.datajpa.repository;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import study.datajpa.entity.Member;
 import java.util.List;
 import java.util.Optional;
@@ -10,14 +11,18 @@ import javax.persistence.PersistenceContext;
 
 @Repository
 @RequiredArgsConstructor
+@Transactional(readOnly = true) //조회는 읽기 전용 트랜잭션, 변경 메서드만 쓰기 트랜잭션
 public class MemberJpaRepository {
     private final EntityManager em;
+    private final MemberBulkUpdater memberBulkUpdater;
 
+    @Transactional
     public Member save(Member member) {
         em.persist(member);
         return member;
     }
 
+    @Transactional
     public void delete (Member member) {
         em.remove(member);
     }
@@ -59,10 +64,8 @@ public class MemberJpaRepository {
                 .getSingleResult();
     }
 
+    @Transactional
     public int bulkAgePlus(int age) {
-        int resultCount = em.createQuery("update Member m set m.age = m.age + 1 where m.age >= :age")
-                .setParameter("age", age)
-                .executeUpdate();
-        return resultCount;
+        return memberBulkUpdater.agePlus(age);
     }
 }
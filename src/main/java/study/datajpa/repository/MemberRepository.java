@@ -2,21 +2,43 @@ package study.datajpa.repository;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.*;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import study.datajpa.dto.MemberDto;
 import study.datajpa.entity.Member;
 
 import javax.persistence.Entity;
 import javax.persistence.LockModeType;
 import javax.persistence.QueryHint;
-import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 //@Repository JpaRepository를 상속받음 => @Repository 필요없다.
+/*
+읽기 전용 트랜잭션 : 조회 메서드는 모두 readOnly = true로 실행한다.
+-> 하이버네이트 세션이 읽기 전용(변경감지 스냅샷 생성 X) + FlushMode.MANUAL(커밋 시 flush X)로 동작하고, 커넥션도 readOnly로 설정된다.
+save(), delete() 등 SimpleJpaRepository의 변경 메서드와 @Transactional을 직접 붙인 메서드는 쓰기 트랜잭션으로 실행된다.
+ */
+@Transactional(readOnly = true)
 public interface MemberRepository extends JpaRepository<Member, Long>, MemberRepositoryCustom {
+    /*
+    쿼리 캐시 : 같은 파라미터로 반복 호출되는 조회 메서드에 @QueryHints로 org.hibernate.cacheable 힌트를 주면
+    결과(엔티티는 id 목록)를 캐시 region에 저장한다. 크기와 ttl은 application.conf의 region 설정을 따른다.
+    member 테이블에 insert/update/delete(JPQL 벌크 수정 포함)가 발생하면 하이버네이트가 테이블 단위로 결과를 무효화한다.
+    bulkAgePlus는 네이티브 sql로 실행되므로 MemberBulkUpdater가 이 region을 직접 비운다.
+     */
+    String MEMBER_QUERY_CACHE = "study.datajpa.repository.MemberRepository";
+
+    /*
+    목록 조회용 DTO 쿼리 : 엔티티 대신 필요한 컬럼만 조회하므로 영속성 컨텍스트에 엔티티(스냅샷, 프록시)가 생기지 않는다.
+     */
+    String MEMBER_DTO_QUERY = "select new study.datajpa.dto.MemberDto(m.id, m.username, t.name,"
+            + " m.createdDate, m.createdBy, m.lastModifiedDate, m.lastModifiedBy)"
+            + " from Member m left join m.team t";
+
     /*
     메서드 이름으로 Query 생성 : 간단한 쿼리의 경우에 사용
      */
@@ -25,6 +47,9 @@ public interface MemberRepository extends JpaRepository<Member, Long>, MemberRep
     /*
     스프링 데이터 JPA로 Named Query 사용
      */
+    @QueryHints(value = {
+            @QueryHint(name = "org.hibernate.cacheable", value = "true"),
+            @QueryHint(name = "org.hibernate.cacheRegion", value = MEMBER_QUERY_CACHE)})
     @Query(name = "Member.findByUsername")//설정한 이름의 NamedQuery를 찾아서 실행. 주석처리 해놔도 우선순위에 따라 NamedQuery를 먼저 찾긴 함.
     public List<Member> findByUsername(@Param("username") String username);
 
@@ -33,12 +58,18 @@ public interface MemberRepository extends JpaRepository<Member, Long>, MemberRep
     app 로딩 시점에 쿼리를 모두 파싱해보기 때문에 쿼리에 문법 오류 시 발견 가능.
     메서드 이름을 간단하게 만들 수 있으며, 복잡한 정적 쿼리 필요시 사용 (동적 쿼리는 Querydsl 사용해야 함)
      */
+    @QueryHints(value = {
+            @QueryHint(name = "org.hibernate.cacheable", value = "true"),
+            @QueryHint(name = "org.hibernate.cacheRegion", value = MEMBER_QUERY_CACHE)})
     @Query("select m from Member m where m.username = :username and m.age = :age")
     public List<Member> findUser(@Param("username") String username, @Param("age") int age);
 
     /*
     @Query로 단순한 값 조회하기. JPA 값 타입도 조회 가능
      */
+    @QueryHints(value = {
+            @QueryHint(name = "org.hibernate.cacheable", value = "true"),
+            @QueryHint(name = "org.hibernate.cacheRegion", value = MEMBER_QUERY_CACHE)})
     @Query("select m.username from Member m")
     public List<String> findUsernameList();
 
@@ -49,10 +80,8 @@ public interface MemberRepository extends JpaRepository<Member, Long>, MemberRep
     public List<MemberDto> findMemberDto();
 
     /*
-    컬렉션 파라미터 바인딩 : 쿼리에 in 절 활용
+    컬렉션 파라미터 바인딩 : 쿼리에 in 절 활용 -> MemberRepositoryCustom.findByNames (in 절 chunk 분할)
      */
-    @Query("select m from Member m where m.username in :names")
-    public List<Member> findByNames(@Param("names") Collection <String> names);
 
     /*
     컬렉션 타입 반환 함수: 결과 없음 -> 빈 컬렉션
@@ -64,11 +93,8 @@ public interface MemberRepository extends JpaRepository<Member, Long>, MemberRep
     Optional<Member> findOptionalByUsername(String name); //단건 Optional
 
     /*
-    페이징
+    페이징 -> MemberRepositoryCustom.findByAge (content, count 쿼리 동시 실행)
      */
-    @Query(value = "select m from Member m left join m.team t",
-    countQuery = "select count(m) from Member m")
-    Page<Member> findByAge(int age, Pageable pageable);
 //
 //    @Override
 //    Page<Member> findAll(Pageable pageable);
@@ -80,20 +106,33 @@ public interface MemberRepository extends JpaRepository<Member, Long>, MemberRep
     /*
     Count 쿼리 분리 (select 쿼리에 join이 발생할 경우 count 쿼리 또한 불필요한 join으로 조회 성능이 떨어지는 경우를 대비)
     => 복잡한 sql에서 사용, 데이터는 left join, 카운트는 left join 안해도 됨
+    -> MemberRepositoryCustom.findMemberAllCountBy (content, count 쿼리 동시 실행)
+     */
+
+    /*
+    페이징 DTO 조회 : page.map(MemberDto::new)로 엔티티를 변환하지 않고 JPQL new 연산자로 바로 DTO 페이지를 조회한다.
+    left join이므로 팀이 없는 회원도 조회되며, count 쿼리에는 join이 필요 없다.
+     */
+    @Query(value = MEMBER_DTO_QUERY,
+            countQuery = "select count(m) from Member m")
+    Page<MemberDto> findMemberDtoBy(Pageable pageable);
+
+    @Query(MEMBER_DTO_QUERY)
+    Slice<MemberDto> findMemberDtoSliceBy(Pageable pageable);
+
+    @Query(MEMBER_DTO_QUERY + " where m.age = :age")
+    Slice<MemberDto> findMemberDtoSliceByAge(@Param("age") int age, Pageable pageable);
+
+    /*
+    동적 Projection + 페이징
      */
-    @Query(value = "select m from Member m",
-            countQuery = "select count(m.username) from Member m")
-    Page<Member> findMemberAllCountBy(Pageable pageable);
+    <T> Page<T> findPageProjectionsByAge(int age, Pageable pageable, Class<T> type);
 
     /*
-    벌크성 수정 쿼리
-    @Modifying을 필수로 붙여줘야 함.
-    *JPA에서 bulk 연산은 주의해야한다.
-    @Modifying(clearAutomatically = true) 설정을 통해 영속성 컨텍스트를 벌크 연산 이후 자동으로 초기화 할 수 있다.
+    벌크성 수정 쿼리 -> MemberRepositoryCustom.bulkAgePlus (MemberBulkUpdater)
+    *JPA에서 bulk 연산은 영속성 컨텍스트를 거치지 않으므로 주의해야한다.
+    MemberBulkUpdater가 수정된 회원만 영속성 컨텍스트와 2차 캐시에서 비운다.
      */
-    @Modifying
-    @Query("update Member m set m.age = m. age +1 where m.age >= :age")
-    int bulkAgePlus(@Param("age") int age);
 
     /*
     fetch 조인 : LAZY 로딩으로 인한 1+N 쿼리 해결. 프록시 객체 대신 실제 객체를 가져오게 됨.
@@ -113,7 +152,13 @@ public interface MemberRepository extends JpaRepository<Member, Long>, MemberRep
      */
     @QueryHints(value = @QueryHint(name = "org.hibernate.readOnly", value = "true"))
     Member findReadOnlyById(Long id);
+    /*
+    javax.persistence.lock.timeout : 락을 기다리는 최대 시간(ms). 넘으면 PessimisticLockingFailureException
+    (h2 방언은 for update wait를 지원하지 않으므로 h2에서는 url의 LOCK_TIMEOUT 설정을 따른다)
+     */
     @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "javax.persistence.lock.timeout", value = "3000"))
+    @Transactional //수정을 위해 잠그는 것이므로 쓰기 트랜잭션
     List<Member> findLockByUsername(String username);
 
     /*
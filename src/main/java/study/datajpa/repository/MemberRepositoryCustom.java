@@ -1,12 +1,86 @@
 package study.datajpa.repository;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.dto.MemberDto;
 import study.datajpa.entity.Member;
+import study.datajpa.paging.CountedPage;
+import study.datajpa.paging.KeysetCursor;
+import study.datajpa.paging.KeysetPage;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 /*
 사용자 정의 리포지토리 구현 - 인터페이스
 -> 구현체 구현 후 스프링 데이터 jpa 리포지토리에 extends 할 수 있다.
  */
 public interface MemberRepositoryCustom {
     List<Member> findMeberCustom();
+
+    /*
+    username in 절 조회
+    이름 목록은 중복 제거 후 datajpa.query.in-chunk-size 단위로 나눠 순서대로 조회하고 결과를 합친다.
+    hibernate.query.in_clause_parameter_padding으로 바인딩 개수가 2의 제곱수로 맞춰지므로 쿼리 계획 캐시에는 몇 개의 in 절 크기만 남는다.
+     */
+    List<Member> findByNames(Collection<String> names);
+
+    /*
+    페이징 : content 쿼리와 count 쿼리를 ParallelPageExecutor로 동시에 실행한다. (쓰기 트랜잭션 안에서는 순서대로)
+    count 결과는 CountCache에 저장하고, 유효한 값이 있으면 content 쿼리만 실행한다.
+    findByAge는 기존 @Query와 같은 쿼리를 사용한다. (age 조건 없음)
+     */
+    Page<Member> findByAge(int age, Pageable pageable);
+
+    /*
+    Count 쿼리 분리 : 데이터는 전체 조회, 카운트는 count(m.username)
+     */
+    Page<Member> findMemberAllCountBy(Pageable pageable);
+
+    /*
+    Keyset(seek) 페이징 : offset/limit + count 대신 커서 이후의 size + 1 건만 조회한다.
+     */
+    KeysetPage<Member> findMemberKeyset(KeysetCursor cursor, int size);
+
+    /*
+    count 쿼리 결과를 CountCache에 캐싱하는 페이징
+    exactTotal = false 이면 근사값(캐시에 남아있는 이전 total)을 허용한다.
+     */
+    CountedPage<Member> findAllCountCached(Pageable pageable, boolean exactTotal);
+
+    CountedPage<Member> findByAgeCountCached(int age, Pageable pageable, boolean exactTotal);
+
+    /*
+    MemberRepository.MEMBER_DTO_QUERY로 DTO를 바로 조회하는 페이징 (count는 CountCache 사용)
+     */
+    CountedPage<MemberDto> findMemberDtoCountCached(Pageable pageable, boolean exactTotal);
+
+    /*
+    전체 목록을 한번에 getResultList()로 올리지 않고 fetchSize 단위로 읽어오는 스트림
+    트랜잭션 안에서 사용하고 반드시 close 해야 한다. (try-with-resources)
+    스트림은 메서드가 끝난 뒤에 소비되므로 호출한 쪽의 트랜잭션이 없으면 IllegalTransactionStateException
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    Stream<MemberDto> streamMemberDto(int fetchSize);
+
+    /*
+    streamMemberDto를 읽기 전용 트랜잭션 안에서 끝까지 소비한다. 처리한 건수를 반환.
+     */
+    long forEachMemberDto(int fetchSize, Consumer<MemberDto> action);
+
+    /*
+    대량 저장 : jdbc batch insert + flushSize 건마다 flush 후 영속성 컨텍스트에서 분리
+     */
+    @Transactional //MemberRepository의 readOnly 설정보다 우선한다.
+    int saveAllBatched(Collection<Member> members);
+
+    /*
+    age 이상인 회원의 나이 + 1 (lastModifiedBy, lastModifiedDate 함께 갱신)
+    수정된 회원만 영속성 컨텍스트와 2차 캐시에서 제거한다. 수정 건수 반환.
+     */
+    @Transactional
+    int bulkAgePlus(int age);
 }
@@ -1,10 +1,31 @@
 package study.datajpa.repository;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.dto.MemberDto;
 import study.datajpa.entity.Member;
+import study.datajpa.paging.CountedPage;
+import study.datajpa.paging.KeysetCursor;
+import study.datajpa.paging.KeysetPage;
 
 import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
 
 /*
 사용자 정의 리포지토리 구현 - 구현체 클래스
@@ -12,12 +33,262 @@ import java.util.List;
 명명 규칙을 반드시 지켜야 Spring Data Jpa가 정상적으로 조립해준다.
  */
 @RequiredArgsConstructor
+@Transactional(readOnly = true)
 public class MemberRepositoryImpl implements MemberRepositoryCustom {
 
     private final EntityManager em;
+    private final CountCache countCache;
+    private final MemberBulkUpdater memberBulkUpdater;
+    private final ParallelPageExecutor parallelPageExecutor;
+
+    @Value("${datajpa.batch.flush-size:1000}")
+    private int flushSize;
+    @Value("${datajpa.query.in-chunk-size:1000}")
+    private int inChunkSize;
     @Override
     public List<Member> findMeberCustom() {
         return em.createQuery("select m from Member m")
                 .getResultList();
     }
+
+    /*
+    한 영속성 컨텍스트(EntityManager)는 여러 스레드에서 동시에 사용할 수 없으므로 chunk는 순서대로 실행한다.
+    chunk 하나로 끝나는 조회만 쿼리 캐시를 사용한다. (큰 목록은 캐시 키와 결과가 커서 메모리만 차지한다)
+     */
+    @Override
+    public List<Member> findByNames(Collection<String> names) {
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(names));
+        if (distinct.isEmpty()) {
+            return new ArrayList<>();
+        }
+        boolean cacheable = distinct.size() <= inChunkSize;
+        List<Member> result = new ArrayList<>();
+        for (int from = 0; from < distinct.size(); from += inChunkSize) {
+            List<String> chunk = distinct.subList(from, Math.min(from + inChunkSize, distinct.size()));
+            result.addAll(em.createQuery("select m from Member m where m.username in :names", Member.class)
+                    .setParameter("names", chunk)
+                    .setHint(QueryHints.HINT_CACHEABLE, cacheable)
+                    .setHint(QueryHints.HINT_CACHE_REGION, MemberRepository.MEMBER_QUERY_CACHE)
+                    .getResultList());
+        }
+        return result;
+    }
+
+    /*
+    offset 방식은 앞의 offset개를 모두 읽고 버리므로 뒤 페이지일수록 느려지지만,
+    keyset 방식은 인덱스(id : pk, username : (username, member_id) 인덱스)를 타고 커서 위치부터 바로 읽으므로
+    10000번째 페이지도 첫 페이지와 비용이 같다.
+    username은 유일하지 않으므로 id를 두번째 정렬 키로 사용한다.
+    username이 null인 회원은 맨 앞(nulls first)으로 정렬하고, 비교 연산으로는 null을 비교할 수 없으므로 조건을 따로 만든다.
+    이전 페이지는 반대 방향으로 조회한 뒤 뒤집는다.
+     */
+    @Override
+    public KeysetPage<Member> findMemberKeyset(KeysetCursor cursor, int size) {
+        boolean backward = cursor.isBackward();
+        boolean byUsername = cursor.getSortKey() == KeysetCursor.SortKey.USERNAME;
+        boolean nullUsername = byUsername && cursor.getUsername() == null;
+        String op = backward ? "<" : ">";
+        String direction = backward ? " desc" : " asc";
+
+        StringBuilder jpql = new StringBuilder("select m from Member m left join fetch m.team");
+        if (!cursor.isFirst()) {
+            if (nullUsername) {
+                jpql.append(" where (m.username is null and m.id ").append(op).append(" :id)");
+                if (!backward) {
+                    jpql.append(" or m.username is not null");
+                }
+            } else if (byUsername) {
+                jpql.append(" where m.username ").append(op).append(" :username")
+                        .append(" or (m.username = :username and m.id ").append(op).append(" :id)");
+                if (backward) {
+                    jpql.append(" or m.username is null");
+                }
+            } else {
+                jpql.append(" where m.id ").append(op).append(" :id");
+            }
+        }
+        jpql.append(" order by ");
+        if (byUsername) {
+            jpql.append("m.username").append(direction).append(backward ? " nulls last, " : " nulls first, ");
+        }
+        jpql.append("m.id").append(direction);
+
+        TypedQuery<Member> query = em.createQuery(jpql.toString(), Member.class)
+                .setMaxResults(size + 1); //다음 페이지 존재 여부 확인용으로 1건 더 조회
+        if (!cursor.isFirst()) {
+            query.setParameter("id", cursor.getId());
+            if (byUsername && !nullUsername) {
+                query.setParameter("username", cursor.getUsername());
+            }
+        }
+
+        List<Member> result = new ArrayList<>(query.getResultList());
+        boolean hasMore = result.size() > size;
+        if (hasMore) {
+            result.remove(size);
+        }
+        if (backward) {
+            Collections.reverse(result);
+        }
+
+        boolean hasNext = backward ? !cursor.isFirst() : hasMore;
+        boolean hasPrevious = backward ? hasMore : !cursor.isFirst();
+        String nextCursor = null;
+        String prevCursor = null;
+        if (!result.isEmpty()) {
+            Member last = result.get(result.size() - 1);
+            Member first = result.get(0);
+            if (hasNext) {
+                nextCursor = KeysetCursor.after(cursor.getSortKey(), last.getId(), last.getUsername()).encode();
+            }
+            if (hasPrevious) {
+                prevCursor = KeysetCursor.before(cursor.getSortKey(), first.getId(), first.getUsername()).encode();
+            }
+        }
+        return new KeysetPage<>(result, cursor.getSortKey(), size, nextCursor, prevCursor);
+    }
+
+    @Override
+    public CountedPage<Member> findAllCountCached(Pageable pageable, boolean exactTotal) {
+        List<Member> content = em.createQuery(QueryUtils.applySorting("select m from Member m", pageable.getSort(), "m"), Member.class)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize())
+                .getResultList();
+        return toCountedPage(content, pageable, exactTotal, "select count(m) from Member m", Collections.emptyMap());
+    }
+
+    @Override
+    public Page<Member> findByAge(int age, Pageable pageable) {
+        return cachedCountPage(pageable, "select m from Member m left join m.team t", "select count(m) from Member m");
+    }
+
+    @Override
+    public Page<Member> findMemberAllCountBy(Pageable pageable) {
+        return cachedCountPage(pageable, "select m from Member m", "select count(m.username) from Member m");
+    }
+
+    /*
+    CountCache에 유효한 total이 있으면 content 쿼리만 실행하고,
+    없으면 content, count 쿼리를 동시에 실행하면서 count 결과를 CountCache에 저장한다. (항상 정확한 total)
+    content 쿼리 전의 auto flush가 캐시를 무효화할 수 있으므로 total은 content 쿼리 이후에 다시 꺼낸다.
+     */
+    private Page<Member> cachedCountPage(Pageable pageable, String query, String countQuery) {
+        LongSupplier count = () -> countCache.get(countQuery, Collections.emptyMap(), true,
+                () -> em.createQuery(countQuery, Long.class).getSingleResult()).getValue();
+        if (countCache.getIfFresh(countQuery, Collections.emptyMap()) != null) {
+            return PageableExecutionUtils.getPage(pagedQuery(query, pageable).getResultList(), pageable, count);
+        }
+        return parallelPageExecutor.page(pageable, () -> pagedQuery(query, pageable).getResultList(), count);
+    }
+
+    private TypedQuery<Member> pagedQuery(String query, Pageable pageable) {
+        TypedQuery<Member> typedQuery = em.createQuery(QueryUtils.applySorting(query, pageable.getSort(), "m"), Member.class);
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult((int) pageable.getOffset());
+            typedQuery.setMaxResults(pageable.getPageSize());
+        }
+        return typedQuery;
+    }
+
+    @Override
+    public CountedPage<Member> findByAgeCountCached(int age, Pageable pageable, boolean exactTotal) {
+        List<Member> content = em.createQuery(QueryUtils.applySorting("select m from Member m where m.age = :age", pageable.getSort(), "m"), Member.class)
+                .setParameter("age", age)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize())
+                .getResultList();
+        return toCountedPage(content, pageable, exactTotal, "select count(m) from Member m where m.age = :age", Map.<String, Object>of("age", age));
+    }
+
+    @Override
+    public CountedPage<MemberDto> findMemberDtoCountCached(Pageable pageable, boolean exactTotal) {
+        List<MemberDto> content = em.createQuery(QueryUtils.applySorting(MemberRepository.MEMBER_DTO_QUERY, pageable.getSort(), "m"), MemberDto.class)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize())
+                .getResultList();
+        return toCountedPage(content, pageable, exactTotal, "select count(m) from Member m", Collections.emptyMap());
+    }
+
+    /*
+    PageableExecutionUtils와 같이 content만으로 total을 알 수 있으면 count 쿼리를 생략하고,
+    그 외에는 CountCache를 거쳐 count 쿼리를 실행한다.
+     */
+    private <T> CountedPage<T> toCountedPage(List<T> content, Pageable pageable, boolean exactTotal,
+                                             String countQuery, Map<String, Object> params) {
+        if (pageable.getOffset() == 0 && content.size() < pageable.getPageSize()) {
+            return new CountedPage<>(content, pageable, content.size(), true);
+        }
+        if (!content.isEmpty() && content.size() < pageable.getPageSize()) {
+            return new CountedPage<>(content, pageable, pageable.getOffset() + content.size(), true);
+        }
+        CountCache.Total total = countCache.get(countQuery, params, exactTotal, () -> {
+            TypedQuery<Long> query = em.createQuery(countQuery, Long.class);
+            params.forEach(query::setParameter);
+            return query.getSingleResult();
+        });
+        return new CountedPage<>(content, pageable, total.getValue(), total.isExact());
+    }
+
+    /*
+    getResultStream() : 하이버네이트가 내부적으로 ScrollableResults(FORWARD_ONLY)로 한 행씩 읽어온다.
+    - fetchSize : jdbc 드라이버가 한번에 가져오는 행 수
+    - MEMBER_DTO_QUERY로 dto를 바로 만들므로 엔티티가 영속성 컨텍스트에 쌓이지 않는다.
+      (em.clear()로 비우면 호출한 쪽 영속성 컨텍스트의 다른 엔티티와 flush 되지 않은 변경 내용까지 함께 분리된다)
+     */
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Stream<MemberDto> streamMemberDto(int fetchSize) {
+        return em.createQuery(MemberRepository.MEMBER_DTO_QUERY, MemberDto.class)
+                .setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+                .getResultStream();
+    }
+
+    @Override
+    public long forEachMemberDto(int fetchSize, Consumer<MemberDto> action) {
+        long count = 0;
+        try (Stream<MemberDto> stream = streamMemberDto(fetchSize)) {
+            for (MemberDto memberDto : (Iterable<MemberDto>) stream::iterator) {
+                action.accept(memberDto);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /*
+    save()를 반복 호출하면 건마다 시퀀스 조회 + insert가 발생한다.
+    - 시퀀스 : allocationSize = 50 (pooled optimizer) -> 50건마다 한번만 시퀀스 조회
+    - insert : hibernate.jdbc.batch_size + order_inserts 설정으로 flush 시점에 jdbc batch로 묶어서 실행
+    - flushSize 건마다 flush 후 저장한 Member를 detach하여 영속성 컨텍스트가 커지지 않게 한다.
+    Team은 cascade = PERSIST로 함께 저장되고, 뒤에 오는 Member가 같은 Team을 참조할 수 있으므로 detach하지 않는다.
+    (이미 다른 트랜잭션에서 저장된 준영속 Team을 참조하면 save()와 마찬가지로 예외가 발생한다.)
+     */
+    @Override
+    @Transactional
+    public int saveAllBatched(Collection<Member> members) {
+        List<Member> chunk = new ArrayList<>(flushSize);
+        int count = 0;
+        for (Member member : members) {
+            em.persist(member);
+            chunk.add(member);
+            count++;
+            if (chunk.size() >= flushSize) {
+                flushAndDetach(chunk);
+            }
+        }
+        flushAndDetach(chunk);
+        return count;
+    }
+
+    private void flushAndDetach(List<Member> chunk) {
+        em.flush();
+        chunk.forEach(em::detach);
+        chunk.clear();
+    }
+
+    @Override
+    @Transactional
+    public int bulkAgePlus(int age) {
+        return memberBulkUpdater.agePlus(age);
+    }
 }
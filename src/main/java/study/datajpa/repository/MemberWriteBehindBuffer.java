@@ -0,0 +1,357 @@
+package study.datajpa.repository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.audit.AuditContext;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManagerFactory;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+Member 수정 write-behind 버퍼 (datajpa.write-behind.enabled=true)
+요청마다 트랜잭션 + flush 하는 대신 Member id별로 변경 내용을 모아두고(같은 id는 마지막 값으로 병합)
+flush-interval마다 또는 batch-size만큼 쌓이면 jdbc batch update 한번으로 반영한다.
+- update 문에서 version, lastModifiedBy, lastModifiedDate도 함께 갱신하므로 같은 회원을 JPA로 수정 중인 트랜잭션은 낙관적 락 충돌이 난다.
+- 반영한 회원은 2차 캐시(Member, Team.members, 쿼리 캐시)에서 제거한다.
+- 버퍼에 쌓인(반영 중 포함) id가 max-pending개면 새 id의 호출 스레드는 flush 될 때까지 최대 offer-timeout 동안 기다리고, 넘으면 RejectedExecutionException (backpressure)
+  id마다 Semaphore permit 하나를 버퍼에 넣기 전에 얻고 반영/버림 후 반납하므로 동시에 호출해도 max-pending을 넘지 않는다.
+  이미 버퍼에 있는 id의 변경 내용은 병합되므로 permit이 필요 없다.
+- 묶음(batch) 반영이 실패하면 한 건씩 다시 반영하고, 실패한 회원만 버퍼에 되돌린다.
+  max-attempts번 실패한 변경 내용(없는 team_id 등)은 버리고 로그 + member.write-behind.dropped 지표로 남긴다. (삭제된 회원도 버림)
+- flush는 한번에 하나만 실행한다. (동시에 실행하면 같은 회원의 이전 변경 내용이 나중에 반영될 수 있다)
+- 종료 시 flush-on-shutdown이면 남은 변경 내용을 모두 반영한다. 프로세스가 비정상 종료되면 버퍼의 변경 내용은 유실된다.
+반영 전까지 조회 결과에는 보이지 않는다. (eventual consistency)
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "datajpa.write-behind.enabled", havingValue = "true")
+public class MemberWriteBehindBuffer {
+
+    private static final String UPDATE_SQL = "update member set"
+            + " username = coalesce(?, username),"
+            + " team_id = case when cast(? as boolean) then cast(? as bigint) else team_id end,"
+            + " version = coalesce(version, 0) + 1, last_modified_by = ?, last_modified_date = ?"
+            + " where member_id = ?";
+
+    private final ConcurrentMap<Long, Change> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Semaphore capacity;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "member-write-behind");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AuditContext auditContext;
+    private final Cache cache;
+    private final int batchSize;
+    private final int maxPending;
+    private final int maxAttempts;
+    private final long offerTimeoutNanos;
+    private final boolean flushOnShutdown;
+    private final Timer flushTimer;
+    private final Counter flushedCounter;
+    private final Counter rejectedCounter;
+    private final Counter droppedCounter;
+
+    public MemberWriteBehindBuffer(JdbcTemplate jdbcTemplate,
+                                   PlatformTransactionManager transactionManager,
+                                   AuditContext auditContext,
+                                   EntityManagerFactory emf,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${datajpa.write-behind.flush-interval:100ms}") Duration flushInterval,
+                                   @Value("${datajpa.write-behind.batch-size:500}") int batchSize,
+                                   @Value("${datajpa.write-behind.max-pending:10000}") int maxPending,
+                                   @Value("${datajpa.write-behind.offer-timeout:1s}") Duration offerTimeout,
+                                   @Value("${datajpa.write-behind.max-attempts:3}") int maxAttempts,
+                                   @Value("${datajpa.write-behind.flush-on-shutdown:true}") boolean flushOnShutdown) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.auditContext = auditContext;
+        this.cache = emf.unwrap(SessionFactory.class).getCache();
+        this.batchSize = batchSize;
+        this.maxPending = maxPending;
+        this.capacity = new Semaphore(maxPending);
+        this.offerTimeoutNanos = offerTimeout.toNanos();
+        this.maxAttempts = maxAttempts;
+        this.flushOnShutdown = flushOnShutdown;
+
+        Gauge.builder("member.write-behind.depth", pending, Map::size)
+                .description("Member ids waiting to be flushed")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("member.write-behind.flush")
+                .description("write-behind batch flush latency")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.flushedCounter = Counter.builder("member.write-behind.flushed").register(meterRegistry);
+        this.rejectedCounter = Counter.builder("member.write-behind.rejected").register(meterRegistry);
+        this.droppedCounter = Counter.builder("member.write-behind.dropped")
+                .description("changes dropped after max-attempts failures or for deleted members")
+                .register(meterRegistry);
+
+        long intervalNanos = flushInterval.toNanos();
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void changeUsername(Long memberId, String username) {
+        offer(memberId, new Change(username, false, null));
+    }
+
+    public void changeTeam(Long memberId, Long teamId) {
+        offer(memberId, new Change(null, true, teamId));
+    }
+
+    private void offer(Long memberId, Change change) {
+        if (pending.computeIfPresent(memberId, (id, older) -> older.then(change)) == null) {
+            awaitCapacity();
+            boolean[] added = {false};
+            pending.compute(memberId, (id, older) -> {
+                added[0] = older == null;
+                return older == null ? change : older.then(change);
+            });
+            if (!added[0]) {
+                capacity.release(); //permit을 얻는 사이 다른 스레드가 같은 id를 먼저 넣었다.
+            }
+        }
+        if (pending.size() >= batchSize) {
+            requestFlush();
+        }
+    }
+
+    private void awaitCapacity() {
+        if (capacity.tryAcquire()) {
+            return;
+        }
+        requestFlush();
+        try {
+            if (capacity.tryAcquire(offerTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("interrupted while waiting for member write-behind buffer", e);
+        }
+        rejectedCounter.increment();
+        throw new RejectedExecutionException("member write-behind buffer is full (" + maxPending + ")");
+    }
+
+    private void requestFlush() {
+        if (flushRequested.compareAndSet(false, true)) {
+            try {
+                scheduler.execute(this::flushQuietly);
+            } catch (RejectedExecutionException e) {
+                flushRequested.set(false); //종료 중
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        flushRequested.set(false);
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("member write-behind flush failed", e);
+        }
+    }
+
+    /*
+    버퍼의 변경 내용을 batchSize 단위 트랜잭션으로 반영한다. 반영한 건수 반환.
+     */
+    public int flush() {
+        flushLock.lock();
+        try {
+            int flushed = 0;
+            List<Long> ids = new ArrayList<>(batchSize);
+            List<Change> changes = new ArrayList<>(batchSize);
+            for (Long id : pending.keySet()) {
+                Change change = pending.remove(id);
+                if (change == null) {
+                    continue;
+                }
+                ids.add(id);
+                changes.add(change);
+                if (ids.size() >= batchSize) {
+                    flushed += flushBatch(ids, changes);
+                    ids.clear();
+                    changes.clear();
+                }
+            }
+            if (!ids.isEmpty()) {
+                flushed += flushBatch(ids, changes);
+            }
+            return flushed;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private int flushBatch(List<Long> ids, List<Change> changes) {
+        long start = System.nanoTime();
+        int[] counts;
+        try {
+            counts = update(ids, changes);
+        } catch (RuntimeException e) {
+            log.warn("member write-behind batch of {} failed, retrying one by one", ids.size(), e);
+            return flushOneByOne(ids, changes);
+        } finally {
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        return applied(ids, changes, counts);
+    }
+
+    private int flushOneByOne(List<Long> ids, List<Change> changes) {
+        int flushed = 0;
+        for (int i = 0; i < ids.size(); i++) {
+            List<Long> id = List.of(ids.get(i));
+            List<Change> change = List.of(changes.get(i));
+            try {
+                flushed += applied(id, change, update(id, change));
+            } catch (RuntimeException e) {
+                retryLater(ids.get(i), changes.get(i), e);
+            }
+        }
+        return flushed;
+    }
+
+    /*
+    실패한 변경 내용은 그 사이 들어온 변경 내용보다 앞선 것으로 버퍼에 되돌린다.
+    다시 넣은 id는 permit을 그대로 가지고, 그 사이 들어온 변경 내용과 병합되거나 버려지면 permit을 반납한다.
+     */
+    private void retryLater(Long id, Change change, RuntimeException e) {
+        Change failed = change.failed();
+        if (failed.attempts >= maxAttempts) {
+            capacity.release();
+            droppedCounter.increment();
+            log.error("member write-behind dropped {} for member {} after {} attempts", failed, id, failed.attempts, e);
+            return;
+        }
+        boolean[] merged = {false};
+        pending.compute(id, (key, newer) -> {
+            merged[0] = newer != null;
+            return newer == null ? failed : failed.then(newer);
+        });
+        if (merged[0]) {
+            capacity.release();
+        }
+    }
+
+    private int[] update(List<Long> ids, List<Change> changes) {
+        return transactionTemplate.execute(status -> {
+            Timestamp now = Timestamp.valueOf(auditContext.now());
+            String auditor = auditContext.auditor();
+            List<Object[]> args = new ArrayList<>(ids.size());
+            for (int i = 0; i < ids.size(); i++) {
+                Change change = changes.get(i);
+                args.add(new Object[]{change.username, change.teamChanged, change.teamId, auditor, now, ids.get(i)});
+            }
+            return jdbcTemplate.batchUpdate(UPDATE_SQL, args);
+        });
+    }
+
+    private int applied(List<Long> ids, List<Change> changes, int[] counts) {
+        capacity.release(ids.size());
+        evict(ids, changes);
+        int flushed = 0;
+        for (int i = 0; i < ids.size(); i++) {
+            if (counts[i] == 0) {
+                droppedCounter.increment();
+                log.warn("member write-behind dropped {} for deleted member {}", changes.get(i), ids.get(i));
+            } else {
+                flushed++;
+            }
+        }
+        flushedCounter.increment(flushed);
+        return flushed;
+    }
+
+    private void evict(List<Long> ids, List<Change> changes) {
+        boolean teamChanged = false;
+        for (int i = 0; i < ids.size(); i++) {
+            cache.evictEntityData(Member.class, ids.get(i));
+            teamChanged |= changes.get(i).teamChanged;
+        }
+        if (teamChanged) {
+            cache.evictCollectionData(Team.class.getName() + ".members");
+        }
+        cache.evictQueryRegion(MemberRepository.MEMBER_QUERY_CACHE);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        scheduler.shutdown();
+        scheduler.awaitTermination(10, TimeUnit.SECONDS);
+        if (flushOnShutdown) {
+            int flushed = flush();
+            log.info("member write-behind flushed {} pending changes on shutdown", flushed);
+        } else if (!pending.isEmpty()) {
+            log.warn("member write-behind discarded {} pending changes on shutdown", pending.size());
+        }
+    }
+
+    /*
+    null인 항목은 변경하지 않는다. (username은 null로 바꿀 수 없다)
+     */
+    private static final class Change {
+        private final String username;
+        private final boolean teamChanged;
+        private final Long teamId;
+        private final int attempts; //반영 실패 횟수
+
+        private Change(String username, boolean teamChanged, Long teamId) {
+            this(username, teamChanged, teamId, 0);
+        }
+
+        private Change(String username, boolean teamChanged, Long teamId, int attempts) {
+            this.username = username;
+            this.teamChanged = teamChanged;
+            this.teamId = teamId;
+            this.attempts = attempts;
+        }
+
+        Change then(Change newer) {
+            return new Change(newer.username != null ? newer.username : username,
+                    teamChanged || newer.teamChanged,
+                    newer.teamChanged ? newer.teamId : teamId,
+                    attempts);
+        }
+
+        Change failed() {
+            return new Change(username, teamChanged, teamId, attempts + 1);
+        }
+
+        @Override
+        public String toString() {
+            return "Change(username=" + username + (teamChanged ? ", teamId=" + teamId : "") + ")";
+        }
+    }
+}
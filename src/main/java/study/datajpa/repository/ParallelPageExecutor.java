@@ -0,0 +1,192 @@
+package study.datajpa.repository;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.datasource.ReadYourWritesGuard;
+import study.datajpa.metrics.SqlMetricsContext;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/*
+페이징 content 쿼리와 count 쿼리 동시 실행 (datajpa.parallel-page.enabled)
+count 쿼리는 전용 스레드 풀에서 별도의 읽기 전용 트랜잭션(= 별도의 EntityManager, 커넥션)으로 실행하고,
+호출 스레드는 그 동안 content 쿼리를 실행한 뒤 결과를 합쳐 Page를 만든다.
+- 쓰기 트랜잭션 안에서는 flush 되지 않은 변경 내용이 다른 커넥션에서 보이지 않으므로 순서대로 실행한다.
+- 호출 스레드는 이미 커넥션을 하나 잡고 있으므로(open-in-view, 읽기 전용 트랜잭션) 커넥션 풀에 유휴 커넥션이 없으면 순서대로 실행한다.
+  (요청 스레드가 풀을 모두 차지한 상태에서 count 작업이 커넥션을 기다리면 서로를 기다리는 교착 상태가 된다)
+- count 작업이 start-timeout 안에 트랜잭션을 시작하지 못하면(큐 대기, 커넥션 획득 대기) 호출 스레드가 가져와서 직접 실행한다.
+- count가 필요 없는 경우(PageableExecutionUtils)는 아직 쿼리를 시작하지 않은 count 작업을 취소한다.
+- 스레드 풀이 가득 찼으면 호출 스레드가 직접 실행하고, count 쿼리가 실패하면 호출 스레드에서 다시 실행한다.
+- 호출 스레드의 read-your-writes 상태(ReadYourWritesGuard)를 count 스레드에 넘기고, count 스레드의 sql 실행 수는 호출 스레드에 합산한다.
+ */
+@Component
+public class ParallelPageExecutor {
+
+    private final boolean enabled;
+    private final DataSource dataSource;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Duration startTimeout;
+    private final ThreadPoolExecutor executor;
+
+    public ParallelPageExecutor(PlatformTransactionManager transactionManager, DataSource dataSource,
+                                @Value("${datajpa.parallel-page.enabled:true}") boolean enabled,
+                                @Value("${datajpa.parallel-page.threads:4}") int threads,
+                                @Value("${datajpa.parallel-page.queue-capacity:64}") int queueCapacity,
+                                @Value("${datajpa.parallel-page.start-timeout:200ms}") Duration startTimeout) {
+        this.enabled = enabled;
+        this.dataSource = dataSource;
+        this.startTimeout = startTimeout;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        AtomicInteger sequence = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "page-count-" + sequence.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public <T> Page<T> page(Pageable pageable, Supplier<List<T>> content, LongSupplier count) {
+        if (!enabled || pageable.isUnpaged() || inWriteTransaction() || !idleConnectionAvailable()) {
+            return PageableExecutionUtils.getPage(content.get(), pageable, count);
+        }
+        CountTask task = new CountTask(count);
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            //시작하지 않은 작업으로 남아서 호출 스레드가 실행한다.
+        }
+        try {
+            return PageableExecutionUtils.getPage(content.get(), pageable, task::join);
+        } finally {
+            task.cancel();
+        }
+    }
+
+    private static boolean inWriteTransaction() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    /*
+    count 작업이 사용할 풀(라우팅 중이면 현재 트랜잭션의 대상 풀)의 유휴 커넥션 확인
+    hikari 풀이 아니거나 아직 시작되지 않았으면 확인할 수 없으므로 start-timeout에 맡긴다.
+     */
+    private boolean idleConnectionAvailable() {
+        try {
+            if (!dataSource.isWrapperFor(HikariDataSource.class)) {
+                return true;
+            }
+            HikariPoolMXBean pool = dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean();
+            return pool == null || pool.getIdleConnections() > 0;
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private class CountTask implements Runnable {
+        private static final int NEW = 0; //큐 대기
+        private static final int STARTED = 1; //count 스레드가 트랜잭션 시작(커넥션 획득) 중
+        private static final int RUNNING = 2; //count 쿼리 실행 중
+        private static final int TAKEN = 3; //호출 스레드가 가져감 (취소 포함)
+
+        private final AtomicInteger state = new AtomicInteger(NEW);
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CompletableFuture<Long> result = new CompletableFuture<>();
+        private final LongSupplier count;
+        private final Long primaryUntil = ReadYourWritesGuard.capture();
+        private volatile SqlMetricsContext.Snapshot sqlUsed;
+
+        CountTask(LongSupplier count) {
+            this.count = count;
+        }
+
+        @Override
+        public void run() {
+            if (!state.compareAndSet(NEW, STARTED)) {
+                return;
+            }
+            ReadYourWritesGuard.restore(primaryUntil);
+            SqlMetricsContext.Snapshot start = SqlMetricsContext.snapshot();
+            try {
+                Long total = readOnlyTransaction.execute(status -> {
+                    if (!state.compareAndSet(STARTED, RUNNING)) {
+                        return null; //호출 스레드가 이미 가져감
+                    }
+                    started.countDown();
+                    return count.getAsLong();
+                });
+                sqlUsed = SqlMetricsContext.snapshot().since(start);
+                result.complete(total);
+            } catch (Throwable e) {
+                sqlUsed = SqlMetricsContext.snapshot().since(start);
+                result.completeExceptionally(e);
+            } finally {
+                started.countDown();
+                ReadYourWritesGuard.clear();
+            }
+        }
+
+        long join() {
+            if (state.compareAndSet(NEW, TAKEN)) {
+                return count.getAsLong(); //호출 스레드의 트랜잭션에서 실행
+            }
+            awaitStart();
+            if (state.compareAndSet(STARTED, TAKEN)) {
+                return count.getAsLong(); //커넥션을 얻지 못했거나 트랜잭션 시작에 실패
+            }
+            try {
+                long total = result.join();
+                SqlMetricsContext.record(sqlUsed);
+                return total;
+            } catch (CompletionException e) {
+                SqlMetricsContext.record(sqlUsed);
+                return count.getAsLong();
+            }
+        }
+
+        private void awaitStart() {
+            try {
+                started.await(startTimeout.toNanos(), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        void cancel() {
+            if (!state.compareAndSet(NEW, TAKEN)) {
+                state.compareAndSet(STARTED, TAKEN);
+            }
+        }
+    }
+}
@@ -2,6 +2,7 @@ package study.datajpa.repository;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import study.datajpa.entity.Team;
 
 import javax.persistence.EntityManager;
@@ -10,14 +11,17 @@ import java.util.Optional;
 
 @Repository
 @RequiredArgsConstructor
+@Transactional(readOnly = true) //조회는 읽기 전용 트랜잭션, 변경 메서드만 쓰기 트랜잭션
 public class TeamJpaRepository {
 
     private final EntityManager em;
 
+    @Transactional
     public Team save(Team team) {
         em.persist(team);
         return team;
     }
+    @Transactional
     public void delete(Team team) {
         em.remove(team);
     }
@@ -0,0 +1,189 @@
+package study.datajpa.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRepository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/*
+username 기준 Member 수정
+1. 동시성 제어 (datajpa.member-update.mode)
+   - PESSIMISTIC : findLockByUsername (select ... for update, lock timeout 3초)
+   - OPTIMISTIC : @Version 조건 update, 충돌하면 트랜잭션 전체를 다시 실행
+   락 대기 시간 초과/낙관적 락 충돌은 max-attempts까지 지수 백오프(+지터) 후 재시도한다.
+2. 요청 병합 (datajpa.member-update.coalesce)
+   같은 username의 수정 요청이 동시에 들어오면 username 해시로 고른 스트라이프 락을 먼저 잡은 스레드가
+   대기 중인 요청을 모두 모아 트랜잭션 하나로 처리한다. (db 락 경합 -> jvm 안의 짧은 대기)
+   병합한 트랜잭션이 실패하면 요청마다 따로 다시 실행하므로 한 요청의 실패가 함께 병합된 요청을 실패시키지 않는다.
+   여러 서버 사이의 경합은 1번이 처리한다.
+3. 시도마다 새 트랜잭션(REQUIRES_NEW)으로 실행하고 커밋한다.
+   호출한 쪽 트랜잭션에 참여하면 첫 충돌에서 바깥 트랜잭션이 rollback-only가 되어 재시도가 모두 실패하기 때문이다.
+   따라서 호출한 쪽 트랜잭션이 롤백되어도 수정 내용은 남고, 호출한 쪽 영속성 컨텍스트의 Member는 갱신되지 않는다.
+ */
+@Component
+public class MemberUpdater {
+
+    public enum Mode {PESSIMISTIC, OPTIMISTIC}
+
+    private final MemberRepository memberRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Mode mode;
+    private final boolean coalesce;
+    private final int maxAttempts;
+    private final long backoffNanos;
+    private final long maxBackoffNanos;
+    private final ReentrantLock[] stripes;
+    private final ConcurrentMap<String, List<Request>> pending = new ConcurrentHashMap<>();
+
+    public MemberUpdater(MemberRepository memberRepository,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${datajpa.member-update.mode:optimistic}") Mode mode,
+                         @Value("${datajpa.member-update.coalesce:true}") boolean coalesce,
+                         @Value("${datajpa.member-update.max-attempts:5}") int maxAttempts,
+                         @Value("${datajpa.member-update.backoff:5ms}") Duration backoff,
+                         @Value("${datajpa.member-update.max-backoff:200ms}") Duration maxBackoff,
+                         @Value("${datajpa.member-update.stripes:64}") int stripes) {
+        this.memberRepository = memberRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.mode = mode;
+        this.coalesce = coalesce;
+        this.maxAttempts = maxAttempts;
+        this.backoffNanos = backoff.toNanos();
+        this.maxBackoffNanos = maxBackoff.toNanos();
+        this.stripes = new ReentrantLock[Integer.highestOneBit(Math.max(1, stripes) * 2 - 1)];
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /*
+    username이 같은 회원 모두에게 change를 적용하고 커밋한다. 수정된 회원 수 반환.
+    change는 재시도/병합 시 여러 번, 다른 요청의 change와 같은 트랜잭션에서 실행될 수 있으므로 엔티티 수정만 해야 한다.
+     */
+    public int update(String username, Consumer<Member> change) {
+        if (!coalesce) {
+            return execute(username, List.of(new Request(change)));
+        }
+        Request request = new Request(change);
+        pending.compute(username, (key, requests) -> {
+            List<Request> queued = requests == null ? new ArrayList<>() : requests;
+            queued.add(request);
+            return queued;
+        });
+        ReentrantLock lock = stripes[(username.hashCode() ^ (username.hashCode() >>> 16)) & (stripes.length - 1)];
+        lock.lock();
+        try {
+            if (!request.done) {
+                //앞선 스레드가 처리하지 못한 요청(자신 포함)을 모두 가져와서 처리
+                List<Request> batch = pending.remove(username);
+                try {
+                    executeBatch(username, batch);
+                } catch (Throwable e) {
+                    //Error 등으로 완료되지 못한 요청이 영원히 기다리지 않도록 같은 예외로 완료한다.
+                    batch.stream().filter(queued -> !queued.done).forEach(queued -> queued.complete(0, e));
+                    throw e;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        Throwable failure = request.failure;
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        if (failure != null) {
+            throw new IllegalStateException("member update failed", failure);
+        }
+        return request.updated;
+    }
+
+    /*
+    병합한 요청을 트랜잭션 하나로 실행하고, 실패하면 요청마다 따로 실행해서 실패한 요청만 예외를 받게 한다.
+     */
+    private void executeBatch(String username, List<Request> batch) {
+        try {
+            int updated = execute(username, batch);
+            batch.forEach(queued -> queued.complete(updated, null));
+            return;
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                batch.get(0).complete(0, e);
+                return;
+            }
+        }
+        for (Request queued : batch) {
+            try {
+                queued.complete(execute(username, List.of(queued)), null);
+            } catch (RuntimeException e) {
+                queued.complete(0, e);
+            }
+        }
+    }
+
+    private int execute(String username, List<Request> batch) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                Integer updated = transactionTemplate.execute(status -> {
+                    List<Member> members = mode == Mode.PESSIMISTIC
+                            ? memberRepository.findLockByUsername(username)
+                            : memberRepository.findByUsername(username);
+                    for (Member member : members) {
+                        batch.forEach(request -> request.change.accept(member));
+                    }
+                    return members.size();
+                });
+                return updated == null ? 0 : updated;
+            } catch (ConcurrencyFailureException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                backoff(attempt);
+            }
+        }
+    }
+
+    private void backoff(int attempt) {
+        long delay = Math.min(maxBackoffNanos, backoffNanos << Math.min(attempt - 1, 20));
+        long jittered = delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+        try {
+            Thread.sleep(jittered / 1_000_000, (int) (jittered % 1_000_000));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while backing off member update", e);
+        }
+    }
+
+    private static class Request {
+        private final Consumer<Member> change;
+        private volatile boolean done;
+        private int updated;
+        private Throwable failure;
+
+        Request(Consumer<Member> change) {
+            this.change = change;
+        }
+
+        void complete(int updated, Throwable failure) {
+            this.updated = updated;
+            this.failure = failure;
+            this.done = true;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package study.datajpa.startup;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.core.RepositoryInformation;
+import org.springframework.data.repository.support.Repositories;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.lang.reflect.Method;
+
+/*
+리포지토리 쿼리 워밍업 (datajpa.startup.warm-up=true)
+ApplicationRunner는 애플리케이션이 트래픽을 받기 전(readiness ACCEPTING_TRAFFIC 이전)에 실행된다.
+1. 리포지토리 빈을 모두 만든다. (bootstrap-mode가 lazy/deferred여도 첫 요청에서 프록시를 만들지 않도록)
+2. @Query의 JPQL, countQuery, named query를 미리 컴파일해서 하이버네이트 쿼리 계획 캐시(JPQL -> SQL 변환 결과)에 올린다.
+   캐시 크기 : hibernate.query.plan_cache_max_size
+메서드 이름으로 만드는 쿼리와 사용자 정의 리포지토리의 동적 JPQL은 호출 시점에 만들어지므로 대상이 아니다.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "datajpa.startup.warm-up", havingValue = "true")
+@RequiredArgsConstructor
+public class QueryWarmUp implements ApplicationRunner {
+
+    public static final String STEP_NAME = "datajpa.query.warm-up";
+
+    private final ConfigurableApplicationContext context;
+    private final EntityManagerFactory emf;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        StartupStep step = context.getApplicationStartup().start(STEP_NAME);
+        long start = System.nanoTime();
+        int compiled = 0;
+        Repositories repositories = new Repositories((ListableBeanFactory) context.getBeanFactory());
+        EntityManager em = emf.createEntityManager();
+        try {
+            for (Class<?> domainType : repositories) {
+                RepositoryInformation information = repositories.getRequiredRepositoryInformation(domainType);
+                for (Method method : information.getQueryMethods()) {
+                    Query query = AnnotatedElementUtils.findMergedAnnotation(method, Query.class);
+                    if (query == null || query.nativeQuery()) {
+                        continue;
+                    }
+                    compiled += compile(em, method, query);
+                }
+            }
+        } finally {
+            em.close();
+        }
+        step.tag("queries", String.valueOf(compiled)).end();
+        log.info("query warm-up : {} queries compiled in {} ms", compiled, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private int compile(EntityManager em, Method method, Query query) {
+        int compiled = 0;
+        try {
+            if (StringUtils.hasText(query.value())) {
+                em.createQuery(query.value());
+                compiled++;
+            } else if (StringUtils.hasText(query.name())) {
+                em.createNamedQuery(query.name());
+                compiled++;
+            }
+            if (StringUtils.hasText(query.countQuery())) {
+                em.createQuery(query.countQuery());
+                compiled++;
+            }
+        } catch (IllegalArgumentException e) {
+            log.warn("query warm-up failed : {}", method, e);
+        }
+        return compiled;
+    }
+}
@@ -0,0 +1,78 @@
+package study.datajpa.startup;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+시작 단계별 소요 시간 요약 (datajpa.startup.report=true)
+DataJpaApplication.main이 BufferingApplicationStartup을 등록해야 기록된다. (전체 기록은 /actuator/startup)
+- entityManagerFactory : 엔티티 메타데이터, named query 파싱, 2차 캐시 region 생성
+- repository init : 리포지토리 프록시 생성 전체
+- repository query lookup : 그 중 쿼리 메서드 생성 (@Query 파싱/검증, 메서드 이름 쿼리 생성)
+- query warm-up : QueryWarmUp
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "datajpa.startup.report", havingValue = "true")
+public class StartupReport implements ApplicationListener<ApplicationReadyEvent> {
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        ApplicationStartup startup = event.getApplicationContext().getApplicationStartup();
+        if (!(startup instanceof BufferingApplicationStartup)) {
+            return;
+        }
+        Map<String, Duration> phases = new LinkedHashMap<>();
+        phases.put("entityManagerFactory", Duration.ZERO);
+        phases.put("repository init", Duration.ZERO);
+        phases.put("repository query lookup", Duration.ZERO);
+        phases.put("query warm-up", Duration.ZERO);
+        int repositories = 0;
+        for (StartupTimeline.TimelineEvent timelineEvent : ((BufferingApplicationStartup) startup).getBufferedTimeline().getEvents()) {
+            StartupStep step = timelineEvent.getStartupStep();
+            String phase = phaseOf(step);
+            if (phase != null) {
+                phases.merge(phase, timelineEvent.getDuration(), Duration::plus);
+                if (phase.equals("repository init")) {
+                    repositories++;
+                }
+            }
+        }
+        StringBuilder report = new StringBuilder("startup phases (ready in ")
+                .append(event.getTimeTaken() == null ? "-" : event.getTimeTaken().toMillis() + " ms").append(")");
+        phases.forEach((phase, duration) -> report.append(String.format("%n  %-26s %6d ms", phase, duration.toMillis())));
+        report.append(String.format("%n  repositories initialized : %d", repositories));
+        log.info(report.toString());
+    }
+
+    private static String phaseOf(StartupStep step) {
+        switch (step.getName()) {
+            case "spring.beans.instantiate":
+                for (StartupStep.Tag tag : step.getTags()) {
+                    if (tag.getKey().equals("beanName") && tag.getValue().equals("entityManagerFactory")) {
+                        return "entityManagerFactory";
+                    }
+                }
+                return null;
+            case "spring.data.repository.init":
+                return "repository init";
+            case "spring.data.repository.proxy":
+                return "repository query lookup";
+            case QueryWarmUp.STEP_NAME:
+                return "query warm-up";
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package study.datajpa.startup;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.List;
+
+/*
+CDS 학습 실행 (datajpa.startup.exit-after-ready=true, ./gradlew cdsArchive)
+시작이 끝나면 training-requests 경로를 한번씩 호출해서 요청 처리에 필요한 클래스까지 로딩한 뒤 종료한다.
+종료 시점에 jvm이 로딩된 클래스를 -XX:ArchiveClassesAtExit 파일로 저장한다.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "datajpa.startup.exit-after-ready", havingValue = "true")
+public class TrainingRun implements ApplicationListener<ApplicationReadyEvent> {
+
+    @Value("${datajpa.startup.training-requests:/members}")
+    private List<String> trainingRequests;
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        Environment environment = event.getApplicationContext().getEnvironment();
+        String port = environment.getProperty("local.server.port");
+        if (port != null) {
+            for (String path : trainingRequests) {
+                request("http://localhost:" + port + path);
+            }
+        }
+        System.exit(SpringApplication.exit(event.getApplicationContext()));
+    }
+
+    private void request(String url) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+            try (InputStream body = connection.getInputStream()) {
+                body.readAllBytes();
+            }
+            log.info("training request {} : {}", url, connection.getResponseCode());
+        } catch (Exception e) {
+            log.warn("training request {} failed", url, e);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+-- 기준 스키마 : 기존 운영 db (ddl-auto로 만들어진 스키마)
+-- 이미 이 스키마가 있는 db는 baseline-on-migrate로 V1을 건너뛰고 V2부터 적용한다.
+create sequence hibernate_sequence start with 1 increment by 1;
+
+create table team (
+    team_id bigint not null,
+    name varchar(255),
+    primary key (team_id)
+);
+
+create table member (
+    member_id bigint not null,
+    created_date timestamp,
+    last_modified_date timestamp,
+    created_by varchar(255),
+    last_modified_by varchar(255),
+    age integer not null,
+    username varchar(255),
+    team_id bigint,
+    primary key (member_id)
+);
+
+create table item (
+    id varchar(255) not null,
+    created_date timestamp,
+    primary key (id)
+);
+
+alter table member add constraint fk_member_team foreign key (team_id) references team;
@@ -0,0 +1,13 @@
+-- 엔티티별 시퀀스 (allocationSize = 50, pooled optimizer)
+-- 기존 id와 겹치지 않도록 현재 최대 id + allocationSize + 1부터 시작한다.
+create sequence member_seq start with 1 increment by 50;
+alter sequence member_seq restart with (select coalesce(max(member_id), 0) + 51 from member);
+create sequence team_seq start with 1 increment by 50;
+alter sequence team_seq restart with (select coalesce(max(team_id), 0) + 51 from team);
+
+-- 낙관적 락 (Member.version) : 기존 행은 0부터 시작
+alter table member add column version bigint;
+update member set version = 0 where version is null;
+
+-- username keyset 페이징 (findMemberKeyset)
+create index idx_member_username_id on member (username, member_id);
@@ -0,0 +1,148 @@
+package study.datajpa.datasource;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+h2 인스턴스 두개(primary, replica)에 각각 자신의 이름을 저장해두고, 어느 쪽으로 라우팅되는지 확인
+ */
+class ReadWriteRoutingDataSourceTest {
+
+    JdbcTemplate jdbcTemplate;
+    TransactionTemplate writeTx;
+    TransactionTemplate readOnlyTx;
+
+    EntityManagerFactory emf;
+    TransactionTemplate jpaWriteTx;
+    TransactionTemplate jpaReadOnlyTx;
+
+    @BeforeEach
+    void setUp() {
+        DataSource primary = instance("primary");
+        DataSource replica = instance("replica");
+        DataSource dataSource = new LazyConnectionDataSourceProxy(
+                new ReadWriteRoutingDataSource(primary, replica, Duration.ofMinutes(1)));
+
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        writeTx = new TransactionTemplate(transactionManager);
+        readOnlyTx = new TransactionTemplate(transactionManager);
+        readOnlyTx.setReadOnly(true);
+
+        emf = entityManagerFactory(dataSource);
+        JpaTransactionManager jpaTransactionManager = new JpaTransactionManager(emf);
+        jpaWriteTx = new TransactionTemplate(jpaTransactionManager);
+        jpaReadOnlyTx = new TransactionTemplate(jpaTransactionManager);
+        jpaReadOnlyTx.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReadYourWritesGuard.clear();
+        emf.close();
+    }
+
+    @Test
+    public void routeByReadOnly() {
+        assertThat(readOnlyTx.execute(status -> instanceName())).isEqualTo("replica");
+        assertThat(writeTx.execute(status -> instanceName())).isEqualTo("primary");
+        assertThat(instanceName()).isEqualTo("primary"); //트랜잭션 밖
+    }
+
+    @Test
+    public void readYourWrites() {
+        writeTx.executeWithoutResult(status -> jdbcTemplate.update("update instance set name = name"));
+
+        //같은 요청(스레드)에서 커밋 직후의 읽기는 primary
+        assertThat(readOnlyTx.execute(status -> instanceName())).isEqualTo("primary");
+
+        //요청 종료 (ReadYourWritesFilter)
+        ReadYourWritesGuard.clear();
+        assertThat(readOnlyTx.execute(status -> instanceName())).isEqualTo("replica");
+    }
+
+    @Test
+    public void rollbackDoesNotPinPrimary() {
+        writeTx.executeWithoutResult(status -> {
+            jdbcTemplate.update("update instance set name = name");
+            status.setRollbackOnly();
+        });
+
+        assertThat(readOnlyTx.execute(status -> instanceName())).isEqualTo("replica");
+    }
+
+    /*
+    open-in-view : 요청 동안 EntityManager 하나가 바인딩된 상태에서 읽기 전용 -> 쓰기 -> 읽기 전용 트랜잭션
+    트랜잭션마다 커넥션을 반환하므로(ReadWriteRoutingConfig) 트랜잭션마다 라우팅이 다시 결정된다.
+     */
+    @Test
+    public void jpaRouteByReadOnlyInOneSession() {
+        EntityManager em = emf.createEntityManager();
+        TransactionSynchronizationManager.bindResource(emf, new EntityManagerHolder(em));
+        try {
+            assertThat(jpaReadOnlyTx.execute(status -> instanceName(em))).isEqualTo("replica");
+            assertThat(jpaWriteTx.execute(status -> {
+                em.createNativeQuery("update instance set name = name").executeUpdate();
+                return instanceName(em);
+            })).isEqualTo("primary");
+
+            //같은 요청에서 커밋 직후의 읽기는 primary
+            assertThat(jpaReadOnlyTx.execute(status -> instanceName(em))).isEqualTo("primary");
+        } finally {
+            TransactionSynchronizationManager.unbindResource(emf);
+            em.close();
+        }
+    }
+
+    private static String instanceName(EntityManager em) {
+        return (String) em.createNativeQuery("select name from instance").getSingleResult();
+    }
+
+    /*
+    엔티티 없이 라우팅만 확인 : 커넥션 처리 방식은 ReadWriteRoutingConfig와 같게 설정
+     */
+    private static EntityManagerFactory entityManagerFactory(DataSource dataSource) {
+        LocalContainerEntityManagerFactoryBean factory = new LocalContainerEntityManagerFactoryBean();
+        factory.setDataSource(dataSource);
+        factory.setPackagesToScan(ReadWriteRoutingDataSourceTest.class.getPackageName());
+        factory.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factory.setJpaPropertyMap(Map.of(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION));
+        factory.afterPropertiesSet();
+        return factory.getObject();
+    }
+
+    private String instanceName() {
+        return jdbcTemplate.queryForObject("select name from instance", String.class);
+    }
+
+    private static DataSource instance(String name) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table if not exists instance (name varchar(20))");
+        jdbcTemplate.update("delete from instance");
+        jdbcTemplate.update("insert into instance (name) values (?)", name);
+        return dataSource;
+    }
+}
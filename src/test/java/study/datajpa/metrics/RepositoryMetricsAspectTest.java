@@ -0,0 +1,42 @@
+package study.datajpa.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.repository.MemberRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class RepositoryMetricsAspectTest {
+
+    @Autowired MemberRepository memberRepository;
+    @Autowired MeterRegistry meterRegistry;
+
+    @Test
+    public void tagInheritedMethodWithRepositoryInterface() {
+        //when : JpaRepository, MemberRepositoryCustom에 선언된 메서드
+        memberRepository.findAll();
+        memberRepository.findAll();
+        memberRepository.findMeberCustom();
+
+        //then
+        Timer findAll = meterRegistry.find("repository.invocations")
+                .tag("repository", "MemberRepository").tag("method", "findAll").timer();
+        assertThat(findAll).isNotNull();
+        assertThat(findAll.count()).isGreaterThanOrEqualTo(2);
+        assertThat(meterRegistry.find("repository.invocations")
+                .tag("repository", "MemberRepository").tag("method", "findMeberCustom").timer()).isNotNull();
+        //테스트 트랜잭션의 영속성 컨텍스트가 열려있으므로 엔티티 수도 기록된다.
+        assertThat(meterRegistry.find("repository.rows")
+                .tag("repository", "MemberRepository").tag("method", "findAll").summary()).isNotNull();
+        assertThat(meterRegistry.find("repository.entities")
+                .tag("repository", "MemberRepository").tag("method", "findAll").summary().count()).isGreaterThanOrEqualTo(2);
+        assertThat(meterRegistry.find("repository.invocations").tag("repository", "JpaRepository").timer()).isNull();
+        assertThat(meterRegistry.find("repository.invocations").tag("repository", "MemberRepositoryCustom").timer()).isNull();
+    }
+}
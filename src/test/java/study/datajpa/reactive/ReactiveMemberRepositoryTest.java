@@ -0,0 +1,100 @@
+package study.datajpa.reactive;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.server.ResponseStatusException;
+import study.datajpa.controller.ReactiveMemberController;
+import study.datajpa.dto.MemberDto;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.TeamRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/*
+R2DBC 커넥션은 JPA 트랜잭션에 참여하지 않으므로 테스트 트랜잭션(@Transactional) 없이 저장(커밋)하고 직접 정리한다.
+ */
+@SpringBootTest(properties = "datajpa.reactive.enabled=true")
+class ReactiveMemberRepositoryTest {
+
+    @Autowired ReactiveMemberRepository reactiveMemberRepository;
+    @Autowired ReactiveMemberController reactiveMemberController;
+    @Autowired MemberRepository memberRepository;
+    @Autowired TeamRepository teamRepository;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    String prefix = UUID.randomUUID().toString();
+    List<Member> members = new ArrayList<>();
+    Team team;
+
+    @AfterEach
+    void tearDown() {
+        memberRepository.deleteAll(members);
+        if (team != null) {
+            teamRepository.delete(team);
+        }
+    }
+
+    @Test
+    public void findMemberDto() {
+        //given
+        Member member = save(new Member(prefix + "-member", 10, new Team(prefix + "-team"))); //cascade = PERSIST
+        team = member.getTeam();
+        Member noTeam = save(new Member(prefix + "-noTeam", 10));
+
+        //when
+        MemberDto memberDto = reactiveMemberRepository.findMemberDto(member.getId()).block();
+        MemberDto noTeamDto = reactiveMemberRepository.findMemberDto(noTeam.getId()).block();
+
+        //then : 컬럼 매핑
+        assertThat(memberDto.getId()).isEqualTo(member.getId());
+        assertThat(memberDto.getUsername()).isEqualTo(prefix + "-member");
+        assertThat(memberDto.getTeamName()).isEqualTo(prefix + "-team");
+        assertThat(memberDto.getCreatedDate()).isNotNull();
+        assertThat(memberDto.getLastModifiedDate()).isNotNull();
+        assertThat(memberDto.getCreatedBy()).isEqualTo(member.getCreatedBy());
+        assertThat(memberDto.getLastModifiedBy()).isEqualTo(member.getLastModifiedBy());
+        assertThat(noTeamDto.getTeamName()).isNull(); //left join
+    }
+
+    @Test
+    public void findMemberDtosLimitOffset() {
+        //given : id 순서로 5명
+        for (int i = 0; i < 5; i++) {
+            save(new Member(prefix + "-" + i, i));
+        }
+        long before = jdbcTemplate.queryForObject("select count(*) from member where member_id < ?",
+                Long.class, members.get(0).getId());
+
+        //when : 두번째 회원부터 3명
+        List<MemberDto> result = reactiveMemberRepository.findMemberDtos(before + 1, 3).collectList().block();
+
+        //then
+        assertThat(result).extracting("id")
+                .containsExactly(members.get(1).getId(), members.get(2).getId(), members.get(3).getId());
+    }
+
+    @Test
+    public void notFound() {
+        assertThat(reactiveMemberRepository.findMemberDto(-1L).block()).isNull();
+
+        assertThatThrownBy(() -> reactiveMemberController.findMember(-1L).block())
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.NOT_FOUND));
+    }
+
+    private Member save(Member member) {
+        members.add(memberRepository.save(member));
+        return member;
+    }
+}
@@ -0,0 +1,54 @@
+package study.datajpa.repository;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+N+1 검출용 테스트 도우미
+start() 이후 연관관계(지연 로딩 엔티티/컬렉션) 초기화를 위해 DB에 나간 조회 횟수가 N을 넘으면 테스트를 실패시킨다.
+batch fetch가 동작하면 100개의 프록시를 초기화해도 조회는 1번이다.
+SessionFactory는 테스트 컨텍스트에서 공유되므로 try-with-resources로 사용해서 통계 설정을 원래대로 돌려놓는다.
+ */
+public class AssociationFetchGuard implements AutoCloseable {
+
+    private final Statistics statistics;
+    private final boolean statisticsEnabled;
+
+    private AssociationFetchGuard(Statistics statistics, boolean statisticsEnabled) {
+        this.statistics = statistics;
+        this.statisticsEnabled = statisticsEnabled;
+    }
+
+    public static AssociationFetchGuard start(EntityManager em) {
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        boolean statisticsEnabled = statistics.isStatisticsEnabled();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        return new AssociationFetchGuard(statistics, statisticsEnabled);
+    }
+
+    @Override
+    public void close() {
+        statistics.setStatisticsEnabled(statisticsEnabled);
+    }
+
+    public AssociationFetchGuard assertEntityFetchesAtMost(Class<?> entityClass, long max) {
+        long fetchCount = statistics.getEntityStatistics(entityClass.getName()).getFetchCount();
+        assertThat(fetchCount)
+                .as("%s 지연 로딩 조회 횟수 (N+1 의심)", entityClass.getSimpleName())
+                .isLessThanOrEqualTo(max);
+        return this;
+    }
+
+    public AssociationFetchGuard assertCollectionFetchesAtMost(String role, long max) {
+        long fetchCount = statistics.getCollectionStatistics(role).getFetchCount();
+        assertThat(fetchCount)
+                .as("%s 컬렉션 초기화 조회 횟수 (N+1 의심)", role)
+                .isLessThanOrEqualTo(max);
+        return this;
+    }
+}
@@ -5,6 +5,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import study.datajpa.entity.Item;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.*;
 @SpringBootTest
 class ItemRepositoryTest {
@@ -17,4 +23,34 @@ class ItemRepositoryTest {
         itemRepository.save(item);
     }
 
+    @Test
+    public void upsertAll() {
+        String prefix = UUID.randomUUID().toString();
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            items.add(new Item(prefix + "-" + i));
+        }
+
+        int inserted = itemRepository.upsertAll(items);
+        //같은 id로 다시 적재해도 select 없이 건너뛴다.
+        int reinserted = itemRepository.upsertAll(items);
+
+        assertThat(inserted).isEqualTo(1200);
+        assertThat(reinserted).isEqualTo(0);
+        assertThat(itemRepository.findById(prefix + "-0")).isPresent();
+        //호출한 쪽의 Item은 그대로 (createdDate == null -> isNew)
+        assertThat(items.get(0).isNew()).isTrue();
+    }
+
+    @Test
+    public void upsertAllRejectsNullId() {
+        List<Item> items = new ArrayList<>();
+        items.add(new Item(UUID.randomUUID().toString()));
+        items.add(new Item(null));
+
+        assertThatThrownBy(() -> itemRepository.upsertAll(items))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("id");
+    }
+
 }
\ No newline at end of file
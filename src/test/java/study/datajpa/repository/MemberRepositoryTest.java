@@ -9,17 +9,27 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.springframework.test.annotation.Rollback;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import study.datajpa.dto.MemberDto;
 import study.datajpa.entity.Member;
 import study.datajpa.entity.Team;
+import study.datajpa.paging.CountedPage;
+import study.datajpa.paging.KeysetCursor;
+import study.datajpa.paging.KeysetPage;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -159,6 +169,28 @@ class MemberRepositoryTest {
         assertThat(members.size()).isEqualTo(2);
     }
 
+    @Test
+    public void findByNamesChunked() {
+        //given : in-chunk-size(1000)를 넘는 이름 목록 (중복 포함)
+        memberRepository.save(new Member("AAA", 10));
+        memberRepository.save(new Member("BBB", 20));
+        memberRepository.save(new Member("CCC", 30));
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            names.add("name" + i);
+        }
+        names.add(0, "AAA");
+        names.add(1200, "BBB");
+        names.add("CCC");
+        names.add("CCC");
+
+        //when
+        List<Member> members = memberRepository.findByNames(names);
+
+        //then
+        assertThat(members).extracting("username").containsExactlyInAnyOrder("AAA", "BBB", "CCC");
+    }
+
     @Test
     public void returnType() {
         Member m1 = new Member("AAA", 10);
@@ -217,7 +249,7 @@ class MemberRepositoryTest {
 
     @Test
     public void testBulkUpdate() {
-        memberRepository.save(new Member("member1", 10));
+        Member member1 = memberRepository.save(new Member("member1", 10));
         memberRepository.save(new Member("member2", 19));
         memberRepository.save(new Member("member3", 20));
         memberRepository.save(new Member("member4", 21));
@@ -227,20 +259,18 @@ class MemberRepositoryTest {
 
         List<Member> result = memberRepository.findByUsername("member5");
         Member member5 = result.get(0);
-        System.out.println("before 영속성 컨텍스트 초기화 member5 = " + member5);// age = 40이다.
+        System.out.println("bulkAgePlus 이후 member5 = " + member5);// age = 41이다.
         /*
-        벌크 연산을 하게 되면 DB에 업데이트를 일괄적으로 수행하고 영속성 컨텍스트에는 반영이 안됨.
+        JPQL 벌크 연산을 하게 되면 DB에 업데이트를 일괄적으로 수행하고 영속성 컨텍스트에는 반영이 안됨.
         따라서 영속성 컨텍스트에 있는 member5의 age는 여전히 40이다.
-        따라서 벌크 연산 이후 api가 종료되지 않고 로직이 이어진다면 영속성 컨텍스트를 초기화하여야 이러한 문제를 방지할 수 있다.
-        단 스프링 데이터 JPA는 벌크연산 메서드에 @Modifying(clearAutomatically = true) 옵션을 설정함으로써 컨텍스트 초기화를 자동화 할 수 있다.
+        (@Modifying(clearAutomatically = true) 옵션은 영속성 컨텍스트 전체를 초기화한다.)
+        bulkAgePlus는 MemberBulkUpdater가 수정된 회원(member3, 4, 5)만 영속성 컨텍스트에서 분리하므로
+        다시 조회하면 DB의 최신 값을 가져오고, 수정되지 않은 member1은 영속 상태 그대로 남는다.
+        lastModifiedBy, lastModifiedDate도 같은 update 문에서 갱신된다.
          */
-
-        em.flush();
-        em.clear();
-
-        result = memberRepository.findByUsername("member5");
-        member5 = result.get(0);
-        System.out.println("after 영속성 컨텍스트 초기화 member5 = " + member5);// age = 41이다.
+        assertThat(member5.getAge()).isEqualTo(41);
+        assertThat(member5.getLastModifiedBy()).isNotNull();
+        assertThat(em.contains(member1)).isTrue();
 
         assertThat(resultCount).isEqualTo(3);
     }
@@ -330,6 +360,25 @@ class MemberRepositoryTest {
         System.out.println("findMember.getLastModifiedBy = " + findMember.getLastModifiedBy());
     }
 
+    @Test
+    public void auditingPerTransaction() throws Exception {
+        //given : 같은 트랜잭션, 같은 flush 전에 저장
+        Member member1 = memberRepository.save(new Member("member1"));
+        Member member2 = memberRepository.save(new Member("member2"));
+        em.flush();
+        Thread.sleep(10);
+
+        //when
+        member1.changeUsername("member1-1");
+        em.flush();
+
+        //then : auditor는 트랜잭션당 하나, 시간은 flush당 하나
+        assertThat(member1.getCreatedBy()).isEqualTo(member2.getCreatedBy());
+        assertThat(member1.getLastModifiedBy()).isEqualTo(member1.getCreatedBy());
+        assertThat(member1.getCreatedDate()).isEqualTo(member2.getCreatedDate());
+        assertThat(member1.getLastModifiedDate()).isAfter(member1.getCreatedDate());
+    }
+
     @Test
     public void projection() {
         Team teamA = new Team("teamA");
@@ -372,4 +421,264 @@ class MemberRepositoryTest {
         }
 
     }
-}
\ No newline at end of file
+
+    @Test
+    public void keysetPaging() {
+        memberRepository.save(new Member("keyset1", 10));
+        memberRepository.save(new Member("keyset2", 10));
+        memberRepository.save(new Member("keyset3", 10));
+        memberRepository.save(new Member("keyset4", 10));
+        memberRepository.save(new Member("keyset5", 10));
+
+        //"keyset" 바로 다음부터 username 순으로 조회
+        KeysetCursor start = KeysetCursor.after(KeysetCursor.SortKey.USERNAME, 0L, "keyset");
+        KeysetPage<Member> page1 = memberRepository.findMemberKeyset(start, 2);
+        KeysetPage<Member> page2 = memberRepository.findMemberKeyset(KeysetCursor.decode(page1.getNextCursor()), 2);
+        KeysetPage<Member> back = memberRepository.findMemberKeyset(KeysetCursor.decode(page2.getPrevCursor()), 2);
+
+        assertThat(page1.getContent()).extracting("username").containsExactly("keyset1", "keyset2");
+        assertThat(page2.getContent()).extracting("username").containsExactly("keyset3", "keyset4");
+        assertThat(back.getContent()).extracting("username").containsExactly("keyset1", "keyset2");
+        assertThat(page2.isLast()).isFalse();
+        assertThat(back.getNextCursor()).isNotNull();
+    }
+
+    @Test
+    public void keysetPagingNullUsername() {
+        Member null1 = memberRepository.save(new Member(null, 10));
+        Member null2 = memberRepository.save(new Member(null, 10));
+        em.flush();
+
+        //null username은 맨 앞으로 정렬 : (null, null1.id) 다음은 null2, 그 다음부터 username이 있는 회원
+        KeysetPage<Member> next = memberRepository.findMemberKeyset(
+                KeysetCursor.decode(KeysetCursor.after(KeysetCursor.SortKey.USERNAME, null1.getId(), null).encode()), 2);
+        KeysetPage<Member> back = memberRepository.findMemberKeyset(
+                KeysetCursor.decode(KeysetCursor.before(KeysetCursor.SortKey.USERNAME, null2.getId(), null).encode()), 1);
+
+        assertThat(next.getContent().get(0)).isEqualTo(null2);
+        assertThat(back.getContent()).containsExactly(null1);
+
+        //null과 빈 문자열은 서로 다른 커서
+        assertThat(KeysetCursor.decode(KeysetCursor.after(KeysetCursor.SortKey.USERNAME, 1L, "").encode()).getUsername()).isEmpty();
+        assertThat(KeysetCursor.decode(KeysetCursor.after(KeysetCursor.SortKey.USERNAME, 1L, null).encode()).getUsername()).isNull();
+    }
+
+    @Test
+    public void pagingCountCached() {
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            members.add(memberRepository.save(new Member("cached" + i, 33)));
+        }
+        PageRequest pageRequest = PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "username"));
+
+        CountedPage<Member> page = memberRepository.findByAgeCountCached(33, pageRequest, true);
+        assertThat(page.getTotalElements()).isEqualTo(5);
+        assertThat(page.isExactTotal()).isTrue();
+
+        //insert 시 캐시 무효화 -> 근사값 허용이면 이전 total, 정확한 값 요청이면 다시 count
+        memberRepository.save(new Member("cached5", 33));
+        CountedPage<Member> approximate = memberRepository.findByAgeCountCached(33, pageRequest, false);
+        assertThat(approximate.getTotalElements()).isEqualTo(5);
+        assertThat(approximate.isExactTotal()).isFalse();
+
+        CountedPage<Member> exact = memberRepository.findByAgeCountCached(33, pageRequest, true);
+        assertThat(exact.getTotalElements()).isEqualTo(6);
+        assertThat(exact.isExactTotal()).isTrue();
+
+        //변경 감지로 age 수정 -> flush 시 update 되면서 캐시 무효화
+        members.get(0).changeAge(34);
+        em.flush();
+        CountedPage<Member> updated = memberRepository.findByAgeCountCached(33, pageRequest, true);
+        assertThat(updated.getTotalElements()).isEqualTo(5);
+        assertThat(updated.isExactTotal()).isTrue();
+    }
+
+    @Test
+    public void pagingCountCachedFindByAge() {
+        for (int i = 0; i < 3; i++) {
+            memberRepository.save(new Member("ageCached" + i, 10));
+        }
+        PageRequest pageRequest = PageRequest.of(0, 1);
+        long total = memberRepository.findByAge(10, pageRequest).getTotalElements();
+        assertThat(memberRepository.findByAge(10, pageRequest).getTotalElements()).isEqualTo(total); //CountCache
+
+        //insert -> content 쿼리 전 flush에서 캐시 무효화 -> count 다시 실행
+        memberRepository.save(new Member("ageCached3", 10));
+        assertThat(memberRepository.findByAge(10, pageRequest).getTotalElements()).isEqualTo(total + 1);
+    }
+
+    @Test
+    public void streamMemberDto() {
+        Team team = new Team("streamTeam");
+        for (int i = 0; i < 10; i++) {
+            memberRepository.save(new Member("stream" + i, 0, team));
+        }
+        em.flush();
+
+        List<MemberDto> exported = new ArrayList<>();
+        long count = memberRepository.forEachMemberDto(3, memberDto -> {
+            if (memberDto.getUsername().startsWith("stream")) {
+                exported.add(memberDto);
+            }
+        });
+
+        assertThat(count).isGreaterThanOrEqualTo(10);
+        assertThat(exported).hasSize(10);
+        assertThat(exported).extracting("teamName").containsOnly("streamTeam");
+    }
+
+    @Test
+    public void streamMemberDtoKeepsPersistenceContext() {
+        Member member = memberRepository.save(new Member("streamManaged", 0));
+        em.flush();
+        member.changeUsername("streamManagedChanged"); //flush 되지 않은 변경 내용
+
+        memberRepository.forEachMemberDto(1, memberDto -> {
+        });
+
+        //스트리밍 중에 영속성 컨텍스트를 비우지 않으므로 호출한 쪽의 엔티티와 변경 내용이 그대로 남는다.
+        assertThat(em.contains(member)).isTrue();
+        em.flush();
+        em.clear();
+        assertThat(memberRepository.findById(member.getId()).get().getUsername()).isEqualTo("streamManagedChanged");
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void streamMemberDtoRequiresTransaction() {
+        assertThatThrownBy(() -> memberRepository.streamMemberDto(10))
+                .isInstanceOf(IllegalTransactionStateException.class);
+    }
+
+    @Test
+    public void saveAllBatched() {
+        Team teamA = new Team("batchTeamA");
+        Team teamB = new Team("batchTeamB");
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            members.add(new Member("batch" + i, i % 50, i % 2 == 0 ? teamA : teamB));
+        }
+        long before = memberRepository.count();
+
+        int saved = memberRepository.saveAllBatched(members);
+
+        assertThat(saved).isEqualTo(2500);
+        assertThat(memberRepository.count()).isEqualTo(before + 2500);
+        assertThat(teamA.getId()).isNotNull(); //cascade = PERSIST로 함께 저장
+        assertThat(em.contains(members.get(0))).isFalse(); //flush 이후 detach
+    }
+
+    @Test
+    public void secondLevelCache() {
+        Team team = new Team("cachedTeam");
+        Member member = new Member("cachedMember", 10, team);
+        memberRepository.save(member);
+        em.flush();
+        em.clear();
+
+        Member findMember = memberRepository.findById(member.getId()).get();
+        findMember.getTeam().getName(); //프록시 초기화 -> 2차 캐시에 저장
+
+        assertThat(em.getEntityManagerFactory().getCache().contains(Member.class, member.getId())).isTrue();
+        assertThat(em.getEntityManagerFactory().getCache().contains(Team.class, team.getId())).isTrue();
+    }
+
+    /*
+    같은 트랜잭션에서 member 테이블을 수정하면 커밋 전까지 쿼리 캐시를 사용하지 않으므로 트랜잭션 없이 실행
+    저장한 회원은 커밋되므로 직접 지우고, 공유하는 SessionFactory의 통계 설정은 원래대로 돌려놓는다.
+     */
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void queryCache() {
+        String username = "queryCache-" + UUID.randomUUID();
+        Member member = memberRepository.save(new Member(username, 77));
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        boolean statisticsEnabled = statistics.isStatisticsEnabled();
+        statistics.setStatisticsEnabled(true);
+        try {
+            long hitCount = statistics.getQueryCacheHitCount();
+
+            memberRepository.findUser(username, 77); //miss -> 캐시에 저장
+            List<Member> result = memberRepository.findUser(username, 77); //hit
+
+            assertThat(result).hasSize(1);
+            assertThat(statistics.getQueryCacheHitCount()).isEqualTo(hitCount + 1);
+        } finally {
+            statistics.setStatisticsEnabled(statisticsEnabled);
+            memberRepository.deleteById(member.getId());
+        }
+    }
+
+    @Test
+    public void batchFetchTeam() {
+        List<Team> teams = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Team team = new Team("batchFetchTeam" + i);
+            teams.add(team);
+            memberRepository.save(new Member("batchFetch" + i, 0, team));
+            memberRepository.save(new Member("batchFetch" + i, 1, team));
+        }
+        em.flush();
+        em.clear();
+        em.getEntityManagerFactory().getCache().evictAll(); //2차 캐시가 아닌 DB에서 조회하도록
+
+        try (AssociationFetchGuard guard = AssociationFetchGuard.start(em)) {
+            List<MemberDto> memberDtos = new ArrayList<>();
+            for (Member member : memberRepository.findByUsername("batchFetch0")) {
+                memberDtos.add(new MemberDto(member));
+            }
+            memberRepository.findAllCountCached(PageRequest.of(0, 20), true).map(member -> new MemberDto(member));
+            List<Team> findTeams = new ArrayList<>();
+            for (Team team : teams) {
+                findTeams.add(em.find(Team.class, team.getId()));
+            }
+            for (Team findTeam : findTeams) {
+                findTeam.getMembers().size(); //첫 컬렉션 초기화 시 나머지 팀의 컬렉션도 함께 조회
+            }
+
+            assertThat(memberDtos).extracting("teamName").containsOnly("batchFetchTeam0");
+            guard.assertEntityFetchesAtMost(Team.class, 2)
+                    .assertCollectionFetchesAtMost(Team.class.getName() + ".members", 1);
+        }
+    }
+
+    @Test
+    public void dtoPaging() {
+        Team team = new Team("dtoPagingTeam");
+        for (int i = 0; i < 5; i++) {
+            memberRepository.save(new Member("dtoPaging" + i, 0, team));
+        }
+        memberRepository.save(new Member("dtoPagingNoTeam", 0));
+        em.flush();
+        em.clear();
+
+        PageRequest pageRequest = PageRequest.of(0, 3, Sort.by(Sort.Direction.DESC, "id"));
+        Page<MemberDto> page = memberRepository.findMemberDtoBy(pageRequest);
+        Slice<MemberDto> slice = memberRepository.findMemberDtoSliceBy(pageRequest);
+
+        assertThat(page.getContent()).hasSize(3);
+        assertThat(page.getContent().get(0).getUsername()).isEqualTo("dtoPagingNoTeam"); //left join
+        assertThat(page.getContent().get(1).getTeamName()).isEqualTo("dtoPagingTeam");
+        assertThat(page.getContent().get(1).getCreatedDate()).isNotNull();
+        assertThat(slice.getContent()).hasSize(3);
+        assertThat(slice.hasNext()).isTrue();
+        //dto만 조회하므로 영속성 컨텍스트에 엔티티가 없다.
+        assertThat(em.unwrap(Session.class).getStatistics().getEntityCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void dtoSliceByAge() {
+        for (int i = 0; i < 4; i++) {
+            memberRepository.save(new Member("dtoSlice" + i, 777));
+        }
+        em.flush();
+        em.clear();
+
+        PageRequest pageRequest = PageRequest.of(1, 2, Sort.by("id"));
+        Slice<MemberDto> slice = memberRepository.findMemberDtoSliceByAge(777, pageRequest); //limit 3 (size + 1)
+
+        assertThat(slice.getContent()).extracting("username").containsExactly("dtoSlice2", "dtoSlice3");
+        assertThat(slice.hasNext()).isFalse();
+        assertThat(slice.isLast()).isTrue();
+    }
+}
@@ -0,0 +1,85 @@
+package study.datajpa.repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+버퍼는 자체 트랜잭션으로 커밋하므로 테스트 트랜잭션(@Transactional) 없이 실행하고 직접 정리한다.
+ */
+@SpringBootTest(properties = {"datajpa.write-behind.enabled=true", "datajpa.write-behind.flush-interval=1h"})
+class MemberWriteBehindBufferTest {
+
+    @Autowired MemberWriteBehindBuffer buffer;
+    @Autowired MemberRepository memberRepository;
+    @Autowired TeamRepository teamRepository;
+    @Autowired MeterRegistry meterRegistry;
+
+    Member member;
+    Team team;
+
+    @AfterEach
+    void tearDown() {
+        memberRepository.deleteById(member.getId());
+        teamRepository.deleteById(team.getId());
+    }
+
+    @Test
+    public void coalesceAndFlush() {
+        //given
+        String prefix = UUID.randomUUID().toString();
+        team = teamRepository.save(new Team(prefix + "-team"));
+        member = memberRepository.save(new Member(prefix + "-member", 10));
+        Long version = member.getVersion();
+
+        //when : 같은 회원의 변경 3번 -> update 1번
+        buffer.changeUsername(member.getId(), prefix + "-a");
+        buffer.changeTeam(member.getId(), team.getId());
+        buffer.changeUsername(member.getId(), prefix + "-b");
+        int flushed = buffer.flush();
+
+        //then
+        assertThat(flushed).isEqualTo(1);
+        Member findMember = memberRepository.findById(member.getId()).get(); //반영된 회원은 2차 캐시에서 제거되어 db에서 조회
+        assertThat(findMember.getUsername()).isEqualTo(prefix + "-b");
+        assertThat(findMember.getTeam().getId()).isEqualTo(team.getId()); //프록시의 id 조회는 초기화하지 않는다.
+        assertThat(findMember.getVersion()).isEqualTo(version + 1);
+        assertThat(findMember.getLastModifiedBy()).isNotNull();
+    }
+
+    @Test
+    public void dropPermanentlyFailingChange() {
+        //given
+        String prefix = UUID.randomUUID().toString();
+        team = teamRepository.save(new Team(prefix + "-team"));
+        member = memberRepository.save(new Member(prefix + "-member", 10));
+        Member broken = memberRepository.save(new Member(prefix + "-broken", 10));
+        double dropped = meterRegistry.get("member.write-behind.dropped").counter().count();
+        try {
+            buffer.changeUsername(member.getId(), prefix + "-ok");
+            buffer.changeTeam(broken.getId(), -1L); //없는 팀 -> 외래 키 위반
+
+            //when : 묶음 반영 실패 -> 한 건씩 다시 반영, 정상 회원만 반영된다.
+            assertThat(buffer.flush()).isEqualTo(1);
+            assertThat(memberRepository.findById(member.getId()).get().getUsername()).isEqualTo(prefix + "-ok");
+
+            //then : 실패한 변경 내용은 max-attempts(3)번째 실패에서 버려지고 이후 flush에는 남아있지 않다.
+            assertThat(buffer.flush()).isZero();
+            assertThat(meterRegistry.get("member.write-behind.dropped").counter().count()).isEqualTo(dropped);
+            assertThat(buffer.flush()).isZero();
+            assertThat(meterRegistry.get("member.write-behind.dropped").counter().count()).isEqualTo(dropped + 1);
+            assertThat(buffer.flush()).isZero();
+            assertThat(meterRegistry.get("member.write-behind.dropped").counter().count()).isEqualTo(dropped + 1);
+        } finally {
+            memberRepository.deleteById(broken.getId());
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package study.datajpa.repository;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.datasource.ReadYourWritesGuard;
+import study.datajpa.metrics.SqlMetricsContext;
+import study.datajpa.metrics.SqlMetricsJdbcEventListener;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+count 쿼리가 page-count 스레드에서 실행되는 경로와 호출 스레드로 돌아오는 경로 확인
+MemberRepositoryTest는 쓰기 트랜잭션(@Transactional) 안에서 실행되어 항상 순서대로 실행되므로
+h2 메모리 db + hikari 풀(4개)로 트랜잭션 없이/읽기 전용 트랜잭션에서 실행한다.
+ */
+class ParallelPageExecutorTest {
+
+    static final int TOTAL = 10;
+
+    HikariDataSource dataSource;
+    JdbcTemplate jdbcTemplate;
+    DataSourceTransactionManager transactionManager;
+    TransactionTemplate readOnlyTx;
+    ParallelPageExecutor executor;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:page;DB_CLOSE_DELAY=-1");
+        dataSource.setUsername("sa");
+        dataSource.setMaximumPoolSize(4);
+        fillPool();
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table if not exists numbers (n int)");
+        jdbcTemplate.update("delete from numbers");
+        for (int n = 1; n <= TOTAL; n++) {
+            jdbcTemplate.update("insert into numbers (n) values (?)", n);
+        }
+
+        transactionManager = new DataSourceTransactionManager(dataSource);
+        readOnlyTx = new TransactionTemplate(transactionManager);
+        readOnlyTx.setReadOnly(true);
+        executor = executor(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+        dataSource.close();
+        ReadYourWritesGuard.clear();
+    }
+
+    @Test
+    public void countOnPageCountThread() {
+        AtomicReference<String> countThread = new AtomicReference<>();
+        CountDownLatch counted = new CountDownLatch(1);
+
+        //호출 스레드는 읽기 전용 트랜잭션으로 커넥션 하나를 잡고 있다.
+        Page<Integer> page = readOnlyTx.execute(status -> executor.page(PageRequest.of(0, 3),
+                () -> {
+                    await(counted);
+                    return numbers(0, 3);
+                },
+                () -> {
+                    countThread.set(Thread.currentThread().getName());
+                    counted.countDown();
+                    return count();
+                }));
+
+        assertThat(countThread.get()).startsWith("page-count-");
+        assertThat(page.getContent()).containsExactly(1, 2, 3);
+        assertThat(page.getTotalElements()).isEqualTo(TOTAL);
+        assertThat(page.getTotalPages()).isEqualTo(4);
+    }
+
+    @Test
+    public void propagateRequestState() {
+        ReadYourWritesGuard.markWrite(Duration.ofMinutes(1));
+        SqlMetricsContext.Snapshot start = SqlMetricsContext.snapshot();
+        AtomicReference<String> countThread = new AtomicReference<>();
+        AtomicBoolean primaryRequired = new AtomicBoolean();
+        CountDownLatch counted = new CountDownLatch(1);
+
+        executor.page(PageRequest.of(0, 3),
+                () -> {
+                    await(counted);
+                    return numbers(0, 3);
+                },
+                () -> {
+                    countThread.set(Thread.currentThread().getName());
+                    primaryRequired.set(ReadYourWritesGuard.isPrimaryRequired());
+                    new SqlMetricsJdbcEventListener().onAfterAnyExecute(null, 1, null); //p6spy 대신 statement 1건 기록
+                    counted.countDown();
+                    return count();
+                });
+
+        //count 스레드도 primary로 라우팅되고, count 스레드의 statement가 호출 스레드에 합산된다.
+        assertThat(countThread.get()).startsWith("page-count-");
+        assertThat(primaryRequired).isTrue();
+        assertThat(SqlMetricsContext.snapshot().since(start).getStatements()).isEqualTo(1);
+    }
+
+    @Test
+    public void sequentialWhenNoIdleConnection() throws SQLException {
+        AtomicReference<String> countThread = new AtomicReference<>();
+        List<Connection> held = new ArrayList<>();
+        try {
+            Page<Integer> page = readOnlyTx.execute(status -> {
+                //호출 스레드 트랜잭션 1개 + 나머지 3개 점유 -> 유휴 커넥션 없음
+                for (int i = 0; i < 3; i++) {
+                    held.add(getConnection());
+                }
+                return executor.page(PageRequest.of(0, 3),
+                        () -> numbers(0, 3),
+                        () -> {
+                            countThread.set(Thread.currentThread().getName());
+                            return count();
+                        });
+            });
+
+            //count 작업이 커넥션을 기다리지 않고 호출 스레드의 커넥션으로 실행
+            assertThat(countThread.get()).isEqualTo(Thread.currentThread().getName());
+            assertThat(page.getTotalElements()).isEqualTo(TOTAL);
+        } finally {
+            for (Connection connection : held) {
+                connection.close();
+            }
+        }
+    }
+
+    @Test
+    public void rejectedCountRunsOnCaller() {
+        executor.shutdown(); //이후 execute는 RejectedExecutionException
+        AtomicReference<String> countThread = new AtomicReference<>();
+
+        Page<Integer> page = executor.page(PageRequest.of(1, 3),
+                () -> numbers(3, 3),
+                () -> {
+                    countThread.set(Thread.currentThread().getName());
+                    return count();
+                });
+
+        assertThat(countThread.get()).isEqualTo(Thread.currentThread().getName());
+        assertThat(page.getContent()).containsExactly(4, 5, 6);
+        assertThat(page.getTotalElements()).isEqualTo(TOTAL);
+    }
+
+    @Test
+    public void cancelUnneededCount() {
+        executor.shutdown();
+        executor = executor(1);
+
+        //count 스레드 하나를 다른 요청의 count 쿼리로 점유
+        CountDownLatch busy = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Page<Integer>> other = CompletableFuture.supplyAsync(() -> executor.page(PageRequest.of(0, 3),
+                () -> numbers(0, 3),
+                () -> {
+                    busy.countDown();
+                    await(release);
+                    return count();
+                }));
+        await(busy);
+
+        //content가 한 페이지보다 적으면 count가 필요 없다 -> 큐에서 기다리던 count 작업 취소
+        AtomicBoolean cancelledCountRan = new AtomicBoolean();
+        Page<Integer> page = executor.page(PageRequest.of(0, 20),
+                () -> numbers(0, 20),
+                () -> {
+                    cancelledCountRan.set(true);
+                    return count();
+                });
+        assertThat(page.getTotalElements()).isEqualTo(TOTAL);
+
+        release.countDown();
+        assertThat(other.join().getTotalElements()).isEqualTo(TOTAL);
+
+        //같은 count 스레드가 다음 작업을 실행했으면 취소된 작업은 이미 건너뛴 것
+        AtomicReference<String> countThread = new AtomicReference<>();
+        CountDownLatch counted = new CountDownLatch(1);
+        executor.page(PageRequest.of(0, 3),
+                () -> {
+                    await(counted);
+                    return numbers(0, 3);
+                },
+                () -> {
+                    countThread.set(Thread.currentThread().getName());
+                    counted.countDown();
+                    return count();
+                });
+        assertThat(countThread.get()).startsWith("page-count-");
+        assertThat(cancelledCountRan).isFalse();
+    }
+
+    private ParallelPageExecutor executor(int threads) {
+        return new ParallelPageExecutor(transactionManager, dataSource, true, threads, 16, Duration.ofSeconds(5));
+    }
+
+    private List<Integer> numbers(int offset, int limit) {
+        return jdbcTemplate.queryForList("select n from numbers order by n limit ? offset ?", Integer.class, limit, offset);
+    }
+
+    private long count() {
+        return jdbcTemplate.queryForObject("select count(*) from numbers", Long.class);
+    }
+
+    private Connection getConnection() {
+        try {
+            return dataSource.getConnection();
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /*
+    풀의 커넥션은 비동기로 채워지므로 미리 모두 만들어 둔다. (유휴 커넥션 확인이 항상 같은 결과가 되도록)
+     */
+    private void fillPool() throws SQLException {
+        List<Connection> connections = new ArrayList<>();
+        for (int i = 0; i < dataSource.getMaximumPoolSize(); i++) {
+            connections.add(dataSource.getConnection());
+        }
+        for (Connection connection : connections) {
+            connection.close();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package study.datajpa.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRepository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/*
+MemberUpdater는 자체 트랜잭션으로 커밋하므로 테스트 트랜잭션(@Transactional) 없이 실행하고 직접 정리한다.
+ */
+@SpringBootTest
+class MemberUpdaterTest {
+
+    @Autowired MemberUpdater memberUpdater;
+    @Autowired MemberRepository memberRepository;
+    @Autowired PlatformTransactionManager transactionManager;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    String username = "updater-" + UUID.randomUUID();
+
+    @AfterEach
+    void tearDown() {
+        memberRepository.deleteAll(memberRepository.findByUsername(username));
+    }
+
+    @Test
+    public void concurrentUpdate() throws Exception {
+        //given
+        memberRepository.save(new Member(username, 0));
+        int writers = 16;
+        int updatesPerWriter = 10;
+
+        //when : 같은 회원을 동시에 +1
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < writers; i++) {
+            futures.add(executor.submit(() -> {
+                for (int j = 0; j < updatesPerWriter; j++) {
+                    memberUpdater.update(username, member -> member.changeAge(member.getAge() + 1));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        //then : 충돌한 수정도 재시도/병합되어 하나도 유실되지 않는다.
+        Member member = memberRepository.findByUsername(username).get(0);
+        assertThat(member.getAge()).isEqualTo(writers * updatesPerWriter);
+        assertThat(member.getVersion()).isPositive();
+    }
+
+    @Test
+    public void optimisticRetryWithoutCoalesce() {
+        //given
+        memberRepository.save(new Member(username, 0));
+        MemberUpdater updater = updater(MemberUpdater.Mode.OPTIMISTIC, false, 5);
+        AtomicInteger attempts = new AtomicInteger();
+
+        //when : 처음 두 번의 시도는 다른 트랜잭션이 먼저 version을 올려서 충돌
+        int updated = updater.update(username, member -> {
+            if (attempts.incrementAndGet() <= 2) {
+                bumpVersionConcurrently();
+            }
+            member.changeAge(member.getAge() + 1);
+        });
+
+        //then : 재시도 2번 후 성공
+        assertThat(updated).isEqualTo(1);
+        assertThat(attempts.get()).isEqualTo(3);
+        assertThat(memberRepository.findByUsername(username).get(0).getAge()).isEqualTo(1);
+    }
+
+    @Test
+    public void optimisticRetryInsideCallerTransaction() {
+        //given
+        memberRepository.save(new Member(username, 0));
+        MemberUpdater updater = updater(MemberUpdater.Mode.OPTIMISTIC, false, 5);
+        AtomicInteger attempts = new AtomicInteger();
+
+        //when : 호출한 쪽 트랜잭션 안에서 첫 시도가 충돌
+        Integer updated = new TransactionTemplate(transactionManager).execute(status -> {
+            int result = updater.update(username, member -> {
+                if (attempts.incrementAndGet() == 1) {
+                    bumpVersionConcurrently();
+                }
+                member.changeAge(member.getAge() + 1);
+            });
+            assertThat(status.isRollbackOnly()).isFalse(); //시도마다 새 트랜잭션 -> 바깥 트랜잭션은 영향 없음
+            return result;
+        });
+
+        //then
+        assertThat(updated).isEqualTo(1);
+        assertThat(attempts.get()).isEqualTo(2);
+        assertThat(memberRepository.findByUsername(username).get(0).getAge()).isEqualTo(1);
+    }
+
+    @Test
+    public void optimisticGiveUpAfterMaxAttempts() {
+        //given
+        memberRepository.save(new Member(username, 0));
+        MemberUpdater updater = updater(MemberUpdater.Mode.OPTIMISTIC, false, 3);
+        AtomicInteger attempts = new AtomicInteger();
+
+        //when : 매번 충돌
+        assertThatThrownBy(() -> updater.update(username, member -> {
+            attempts.incrementAndGet();
+            bumpVersionConcurrently();
+            member.changeAge(member.getAge() + 1);
+        })).isInstanceOf(ConcurrencyFailureException.class);
+
+        //then
+        assertThat(attempts.get()).isEqualTo(3);
+        assertThat(memberRepository.findByUsername(username).get(0).getAge()).isEqualTo(0);
+    }
+
+    @Test
+    public void pessimisticWithoutCoalesce() throws Exception {
+        //given
+        memberRepository.save(new Member(username, 0));
+        MemberUpdater updater = updater(MemberUpdater.Mode.PESSIMISTIC, false, 5);
+        int writers = 8;
+        int updatesPerWriter = 5;
+
+        //when : 병합 없이 select for update로 한 건씩 순서대로 수정
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < writers; i++) {
+            futures.add(executor.submit(() -> {
+                for (int j = 0; j < updatesPerWriter; j++) {
+                    updater.update(username, member -> member.changeAge(member.getAge() + 1));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        //then
+        assertThat(memberRepository.findByUsername(username).get(0).getAge()).isEqualTo(writers * updatesPerWriter);
+    }
+
+    @Test
+    public void failedChangeDoesNotFailCoalescedRequests() throws Exception {
+        //given
+        memberRepository.save(new Member(username, 0));
+        MemberUpdater updater = updater(MemberUpdater.Mode.OPTIMISTIC, true, 5);
+
+        //첫 요청이 스트라이프 락을 잡고 있는 동안 두 요청이 대기 -> 두 요청은 하나로 병합된다.
+        CountDownLatch firstRunning = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Integer> first = CompletableFuture.supplyAsync(() -> updater.update(username, member -> {
+            firstRunning.countDown();
+            await(release);
+            member.changeAge(member.getAge() + 1);
+        }));
+        await(firstRunning);
+
+        FutureTask<Integer> good = new FutureTask<>(() -> updater.update(username, member -> member.changeAge(member.getAge() + 10)));
+        FutureTask<Integer> bad = new FutureTask<>(() -> updater.update(username, member -> {
+            throw new IllegalArgumentException("bad change");
+        }));
+        Thread goodThread = new Thread(good);
+        Thread badThread = new Thread(bad);
+        goodThread.start();
+        badThread.start();
+        awaitWaiting(goodThread);
+        awaitWaiting(badThread);
+        release.countDown();
+
+        //then : 실패한 요청만 예외, 함께 병합된 요청은 따로 다시 실행되어 반영
+        assertThat(first.get()).isEqualTo(1);
+        assertThat(good.get()).isEqualTo(1);
+        assertThatThrownBy(bad::get).isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IllegalArgumentException.class);
+        assertThat(memberRepository.findByUsername(username).get(0).getAge()).isEqualTo(11);
+    }
+
+    private MemberUpdater updater(MemberUpdater.Mode mode, boolean coalesce, int maxAttempts) {
+        return new MemberUpdater(memberRepository, transactionManager, mode, coalesce, maxAttempts,
+                Duration.ofMillis(1), Duration.ofMillis(10), 64);
+    }
+
+    /*
+    다른 스레드(= 다른 커넥션, 자동 커밋)에서 version 증가 -> 진행 중인 트랜잭션의 version 조건 update가 실패한다.
+     */
+    private void bumpVersionConcurrently() {
+        CompletableFuture.runAsync(() -> jdbcTemplate.update(
+                "update member set version = version + 1 where username = ?", username)).join();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void awaitWaiting(Thread thread) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (thread.getState() != Thread.State.WAITING) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Thread.sleep(1);
+        }
+    }
+}